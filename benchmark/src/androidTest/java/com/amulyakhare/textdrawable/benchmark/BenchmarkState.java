@@ -0,0 +1,131 @@
+package com.amulyakhare.textdrawable.benchmark;
+
+import android.util.Log;
+
+import java.util.Arrays;
+
+/**
+ * Measurement loop with the same shape as androidx.benchmark's BenchmarkState, so the
+ * benchmarks port to BenchmarkRule unchanged once the build can depend on it:
+ *
+ * <pre>
+ * BenchmarkState state = new BenchmarkState("draw");
+ * while (state.keepRunning()) {
+ *     drawable.draw(canvas);
+ * }
+ * state.report();
+ * </pre>
+ *
+ * The loop is warmed up for {@link #WARMUP_NANOS}, then timed over {@link #REPEATS}
+ * batches; the reported score is the median time per iteration.
+ */
+public final class BenchmarkState {
+
+    static final String TAG = "TextDrawableBenchmark";
+
+    private static final long WARMUP_NANOS = 250 * 1000 * 1000L;
+    private static final long TARGET_BATCH_NANOS = 10 * 1000 * 1000L;
+    private static final int WARMUP_BATCH = 16;
+    private static final int REPEATS = 25;
+
+    private static final int NOT_STARTED = 0;
+    private static final int WARMUP = 1;
+    private static final int RUNNING = 2;
+    private static final int FINISHED = 3;
+
+    private final String name;
+    private final long[] results = new long[REPEATS];
+    private int state = NOT_STARTED;
+    private int remaining;
+    private int batchSize;
+    private int repeat;
+    private long warmupStart;
+    private long warmupIterations;
+    private long batchStart;
+    private long pausedNanos;
+    private long pauseStart;
+
+    public BenchmarkState(String name) {
+        this.name = name;
+    }
+
+    public boolean keepRunning() {
+        if (--remaining > 0) {
+            return true;
+        }
+        return nextBatch();
+    }
+
+    /**
+     * Excludes the work done until {@link #resumeTiming()} from the measurement.
+     */
+    public void pauseTiming() {
+        pauseStart = System.nanoTime();
+    }
+
+    public void resumeTiming() {
+        pausedNanos += System.nanoTime() - pauseStart;
+    }
+
+    private boolean nextBatch() {
+        long now = System.nanoTime();
+        long elapsed = now - batchStart - pausedNanos;
+        switch (state) {
+            case NOT_STARTED:
+                state = WARMUP;
+                warmupStart = now;
+                warmupIterations = 0;
+                return startBatch(WARMUP_BATCH);
+            case WARMUP:
+                warmupIterations += batchSize;
+                if (now - warmupStart < WARMUP_NANOS) {
+                    return startBatch(WARMUP_BATCH);
+                }
+                long perIteration = Math.max(1, (now - warmupStart) / warmupIterations);
+                state = RUNNING;
+                repeat = 0;
+                return startBatch((int) Math.max(1, Math.min(Integer.MAX_VALUE, TARGET_BATCH_NANOS / perIteration)));
+            case RUNNING:
+                results[repeat++] = elapsed / batchSize;
+                if (repeat < REPEATS) {
+                    return startBatch(batchSize);
+                }
+                state = FINISHED;
+                return false;
+            default:
+                throw new IllegalStateException("benchmark " + name + " already finished");
+        }
+    }
+
+    private boolean startBatch(int size) {
+        batchSize = size;
+        remaining = size;
+        pausedNanos = 0;
+        batchStart = System.nanoTime();
+        return true;
+    }
+
+    /**
+     * @return median time per iteration in nanoseconds
+     */
+    public long medianNanos() {
+        if (state != FINISHED) {
+            throw new IllegalStateException("benchmark " + name + " has not finished");
+        }
+        long[] sorted = results.clone();
+        Arrays.sort(sorted);
+        return sorted[REPEATS / 2];
+    }
+
+    public long minNanos() {
+        long[] sorted = results.clone();
+        Arrays.sort(sorted);
+        return sorted[0];
+    }
+
+    public long report() {
+        long median = medianNanos();
+        Log.i(TAG, String.format("%-40s median %8d ns/op, min %8d ns/op", name, median, minNanos()));
+        return median;
+    }
+}
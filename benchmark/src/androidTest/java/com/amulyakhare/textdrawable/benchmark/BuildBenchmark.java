@@ -0,0 +1,91 @@
+package com.amulyakhare.textdrawable.benchmark;
+
+import com.amulyakhare.textdrawable.TextDrawable;
+
+import junit.framework.TestCase;
+
+/**
+ * Throughput of creating drawables through the builder and through a shared style.
+ */
+public class BuildBenchmark extends TestCase {
+
+    private static final int COLOR = 0xff59a2be;
+
+    // keeps the results reachable so the loops cannot be optimized away
+    private Object sink;
+
+    public void testBuild() {
+        TextDrawable.IBuilder builder = TextDrawable.builder()
+                .rect();
+
+        BenchmarkState state = new BenchmarkState("IBuilder.build");
+        while (state.keepRunning()) {
+            sink = builder.build("A", COLOR);
+        }
+        state.report();
+    }
+
+    public void testBuildRect() {
+        TextDrawable.IShapeBuilder builder = TextDrawable.builder();
+
+        BenchmarkState state = new BenchmarkState("IShapeBuilder.buildRect");
+        while (state.keepRunning()) {
+            sink = builder.buildRect("A", COLOR);
+        }
+        state.report();
+    }
+
+    public void testBuildRound() {
+        TextDrawable.IShapeBuilder builder = TextDrawable.builder();
+
+        BenchmarkState state = new BenchmarkState("IShapeBuilder.buildRound");
+        while (state.keepRunning()) {
+            sink = builder.buildRound("A", COLOR);
+        }
+        state.report();
+    }
+
+    public void testBuildRoundRect() {
+        TextDrawable.IShapeBuilder builder = TextDrawable.builder();
+
+        BenchmarkState state = new BenchmarkState("IShapeBuilder.buildRoundRect");
+        while (state.keepRunning()) {
+            sink = builder.buildRoundRect("A", COLOR, 10);
+        }
+        state.report();
+    }
+
+    public void testBuildWithBorder() {
+        TextDrawable.IBuilder builder = TextDrawable.builder()
+                .beginConfig()
+                    .withBorder(4)
+                .endConfig()
+                .round();
+
+        BenchmarkState state = new BenchmarkState("IBuilder.build border");
+        while (state.keepRunning()) {
+            sink = builder.build("A", COLOR);
+        }
+        state.report();
+    }
+
+    public void testStyleBuild() {
+        TextDrawable.Style style = TextDrawable.builder()
+                .round()
+                .style();
+
+        BenchmarkState state = new BenchmarkState("Style.build");
+        while (state.keepRunning()) {
+            sink = style.build("A", COLOR);
+        }
+        state.report();
+    }
+
+    public void testBuilderCreation() {
+        BenchmarkState state = new BenchmarkState("TextDrawable.builder");
+        while (state.keepRunning()) {
+            sink = TextDrawable.builder();
+        }
+        state.report();
+    }
+}
@@ -0,0 +1,118 @@
+package com.amulyakhare.textdrawable.benchmark;
+
+import android.util.Log;
+
+import com.amulyakhare.textdrawable.util.ColorGenerator;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Cost of picking colors, and how {@link ColorGenerator#getRandomColor()} scales when
+ * called from several threads at once.
+ */
+public class ColorGeneratorBenchmark extends TestCase {
+
+    private static final int OPERATIONS_PER_THREAD = 2000000;
+
+    private static final int SCALING_RUNS = 3;
+
+    private final ColorGenerator generator = ColorGenerator.MATERIAL;
+
+    private int sink;
+
+    public void testGetColorCharSequence() {
+        String key = "user@gmail.com";
+
+        BenchmarkState state = new BenchmarkState("getColor(CharSequence)");
+        while (state.keepRunning()) {
+            sink += generator.getColor(key);
+        }
+        state.report();
+    }
+
+    public void testGetColorObject() {
+        Object key = Long.valueOf(42);
+
+        BenchmarkState state = new BenchmarkState("getColor(Object)");
+        while (state.keepRunning()) {
+            sink += generator.getColor(key);
+        }
+        state.report();
+    }
+
+    public void testGetRandomColor() {
+        BenchmarkState state = new BenchmarkState("getRandomColor");
+        while (state.keepRunning()) {
+            sink += generator.getRandomColor();
+        }
+        state.report();
+    }
+
+    /**
+     * Compares the throughput of getRandomColor() with one thread and with one thread per
+     * core. Without contention the second is close to cores x the first, less on devices
+     * with cores of different speeds or when throttled, so the speedup is reported, not
+     * asserted. The best of a few runs is kept, so that a run disturbed by other work on
+     * the device does not decide.
+     */
+    public void testGetRandomColorScaling() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // warm up
+        throughput(cores);
+
+        double single = 0;
+        double parallel = 0;
+        for (int run = 0; run < SCALING_RUNS; run++) {
+            single = Math.max(single, throughput(1));
+            parallel = Math.max(parallel, throughput(cores));
+        }
+        double speedup = parallel / single;
+        Log.i(BenchmarkState.TAG, String.format("getRandomColor 1 thread %.0f ops/ms, %d threads %.0f ops/ms (x%.2f)",
+                single, cores, parallel, speedup));
+    }
+
+    /**
+     * @return operations per millisecond over all threads
+     */
+    private double throughput(int threads) throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>(threads);
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws InterruptedException {
+                        start.await();
+                        int result = 0;
+                        for (int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+                            result += generator.getRandomColor();
+                        }
+                        return result;
+                    }
+                }));
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            // each thread sums into a local, combined here so the work cannot be optimized away
+            for (Future<Integer> result : results) {
+                sink += result.get();
+            }
+            long elapsed = System.nanoTime() - begin;
+            return (double) threads * OPERATIONS_PER_THREAD * 1000 * 1000 / elapsed;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
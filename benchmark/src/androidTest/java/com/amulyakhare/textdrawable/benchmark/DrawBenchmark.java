@@ -0,0 +1,116 @@
+package com.amulyakhare.textdrawable.benchmark;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+
+import com.amulyakhare.textdrawable.TextDrawable;
+import com.amulyakhare.textdrawable.cache.GlyphCache;
+
+import junit.framework.TestCase;
+
+/**
+ * Cost of {@link TextDrawable#draw(Canvas)} for every shape, with and without border,
+ * drawn into a software canvas.
+ */
+public class DrawBenchmark extends TestCase {
+
+    private static final int SIZE = 96;
+    private static final int BORDER = 4;
+    private static final int COLOR = 0xff59a2be;
+
+    private Canvas canvas;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+    }
+
+    public void testDrawRect() {
+        measure("draw rect", TextDrawable.builder().rect());
+    }
+
+    public void testDrawRound() {
+        measure("draw round", TextDrawable.builder().round());
+    }
+
+    public void testDrawRoundRect() {
+        measure("draw roundRect", TextDrawable.builder().roundRect(10));
+    }
+
+    public void testDrawRectWithBorder() {
+        measure("draw rect border", withBorder().rect());
+    }
+
+    public void testDrawRoundWithBorder() {
+        measure("draw round border", withBorder().round());
+    }
+
+    public void testDrawRoundRectWithBorder() {
+        measure("draw roundRect border", withBorder().roundRect(10));
+    }
+
+    public void testDrawRoundWithGlyphCache() {
+        measure("draw round glyph cache", TextDrawable.builder()
+                .beginConfig()
+                    .useGlyphCache(new GlyphCache(16))
+                .endConfig()
+                .round());
+    }
+
+    /**
+     * After warm-up, drawing must not allocate on any of the paths above.
+     */
+    public void testDrawDoesNotAllocate() {
+        TextDrawable[] drawables = {
+                prepare(TextDrawable.builder().rect()),
+                prepare(TextDrawable.builder().round()),
+                prepare(TextDrawable.builder().roundRect(10)),
+                prepare(withBorder().rect()),
+                prepare(withBorder().round()),
+                prepare(withBorder().roundRect(10)),
+                prepare(TextDrawable.builder()
+                        .beginConfig()
+                            .useGlyphCache(new GlyphCache(16))
+                        .endConfig()
+                        .round())
+        };
+        for (TextDrawable drawable : drawables) {
+            drawable.draw(canvas);
+        }
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        for (int i = 0; i < 100; i++) {
+            for (TextDrawable drawable : drawables) {
+                drawable.draw(canvas);
+            }
+        }
+        Debug.stopAllocCounting();
+        assertEquals("allocations during draw", 0, Debug.getThreadAllocCount());
+    }
+
+    private static TextDrawable.IShapeBuilder withBorder() {
+        return TextDrawable.builder()
+                .beginConfig()
+                    .withBorder(BORDER)
+                .endConfig();
+    }
+
+    private static TextDrawable prepare(TextDrawable.IBuilder builder) {
+        TextDrawable drawable = builder.build("A", COLOR);
+        drawable.setBounds(0, 0, SIZE, SIZE);
+        return drawable;
+    }
+
+    private void measure(String name, TextDrawable.IBuilder builder) {
+        TextDrawable drawable = prepare(builder);
+
+        BenchmarkState state = new BenchmarkState(name);
+        while (state.keepRunning()) {
+            drawable.draw(canvas);
+        }
+        state.report();
+    }
+}
@@ -0,0 +1,301 @@
+package com.amulyakhare.textdrawable.cli;
+
+import com.amulyakhare.textdrawable.headless.AvatarRenderer;
+import com.amulyakhare.textdrawable.util.ColorGenerator;
+import com.amulyakhare.textdrawable.util.InitialsExtractor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Generates avatars for every name of a (possibly huge) line delimited or CSV file.
+ * Names are streamed in batches; while one batch is rendered on a fork-join pool the
+ * next one is read. Avatars are appended to sharded output files and indexed in
+ * {@code manifest.tsv}:
+ *
+ * <pre>
+ * name  text  color  shard  offset  length
+ * </pre>
+ *
+ * Throughput and peak heap usage are printed at the end.
+ */
+public final class AvatarGenerator {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // below this many names a task renders instead of forking
+    private static final int THRESHOLD = 64;
+
+    private final Options options;
+    private final AvatarRenderer renderer;
+    private final ColorGenerator palette;
+
+    private final ThreadLocal<Buffer> buffers = new ThreadLocal<Buffer>() {
+        @Override
+        protected Buffer initialValue() {
+            return new Buffer();
+        }
+    };
+
+    private AvatarGenerator(Options options) {
+        this.options = options;
+        renderer = options.renderer;
+        palette = options.colors;
+    }
+
+    public static void main(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(Options.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        try {
+            new AvatarGenerator(options).run();
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private void run() throws IOException, InterruptedException, ExecutionException {
+        if (!options.output.isDirectory() && !options.output.mkdirs()) {
+            throw new IOException("cannot create " + options.output);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(options.threads);
+        ShardedOutput shards = new ShardedOutput(options.output, options.format, options.shards);
+        Writer manifest = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(options.output, "manifest.tsv")), UTF_8));
+        InputStream in = "-".equals(options.input) ? System.in : new FileInputStream(options.input);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8), 256 * 1024);
+
+        long start = System.nanoTime();
+        long count = 0;
+        long bytes = 0;
+        try {
+            manifest.write("# name\ttext\tcolor\tshard\toffset\tlength\n");
+            if (options.header) {
+                reader.readLine();
+            }
+
+            Batch batch = read(reader, 0);
+            while (batch != null) {
+                ForkJoinTask<Void> task = pool.submit(new RenderTask(batch, shards, 0, batch.size));
+                // read ahead while the pool renders
+                Batch next = read(reader, batch.first + batch.size);
+                task.get();
+
+                bytes += batch.write(manifest, options.format);
+                count += batch.size;
+                batch = next;
+            }
+        } finally {
+            pool.shutdown();
+            reader.close();
+            manifest.close();
+            shards.close();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format(Locale.US, "%d avatars, %.1f MB in %d shards, %.2f s, %.0f avatars/s, peak heap %.1f MB",
+                count, bytes / 1e6, shards.shardCount(), seconds, count / seconds, peakHeapBytes() / 1e6));
+    }
+
+    /**
+     * @return the next batch of names, or null at the end of the input
+     */
+    private Batch read(BufferedReader reader, long first) throws IOException {
+        Batch batch = new Batch(first, options.batch);
+        String line;
+        while (batch.size < options.batch && (line = reader.readLine()) != null) {
+            String name = options.column < 0 ? line : csvField(line, options.column);
+            name = name == null ? "" : name.trim();
+            if (!name.isEmpty()) {
+                batch.names[batch.size++] = name;
+            }
+        }
+        return batch.size == 0 ? null : batch;
+    }
+
+    /**
+     * Returns the field at {@code column} of a CSV line, honouring quoted fields, or null
+     * if the line has fewer fields.
+     */
+    static String csvField(String line, int column) {
+        StringBuilder field = new StringBuilder();
+        int current = 0;
+        boolean quoted = false;
+        for (int i = 0, length = line.length(); i < length; i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < length && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (current == column) {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                if (current == column) {
+                    return field.toString();
+                }
+                current++;
+            } else if (current == column) {
+                field.append(c);
+            }
+        }
+        return current == column ? field.toString() : null;
+    }
+
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static final class Batch {
+
+        private final long first;
+        private final String[] names;
+        private final String[] texts;
+        private final int[] colors;
+        private final int[] shards;
+        private final long[] offsets;
+        private final int[] lengths;
+        private int size;
+
+        private Batch(long first, int capacity) {
+            this.first = first;
+            names = new String[capacity];
+            texts = new String[capacity];
+            colors = new int[capacity];
+            shards = new int[capacity];
+            offsets = new long[capacity];
+            lengths = new int[capacity];
+        }
+
+        /**
+         * Writes the manifest entries of the batch, in input order.
+         *
+         * @return the number of avatar bytes in the batch
+         */
+        private long write(Writer manifest, String format) throws IOException {
+            long bytes = 0;
+            for (int i = 0; i < size; i++) {
+                manifest.write(escape(names[i]));
+                manifest.write('\t');
+                manifest.write(escape(texts[i]));
+                manifest.write('\t');
+                manifest.write(String.format("#%08x", colors[i]));
+                manifest.write('\t');
+                manifest.write(ShardedOutput.fileName(shards[i], format));
+                manifest.write('\t');
+                manifest.write(Long.toString(offsets[i]));
+                manifest.write('\t');
+                manifest.write(Integer.toString(lengths[i]));
+                manifest.write('\n');
+                bytes += lengths[i];
+            }
+            return bytes;
+        }
+
+        private static String escape(String value) {
+            return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+        }
+    }
+
+    private final class RenderTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Batch batch;
+        private final ShardedOutput output;
+        private final int start;
+        private final int end;
+
+        private RenderTask(Batch batch, ShardedOutput output, int start, int end) {
+            this.batch = batch;
+            this.output = output;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > THRESHOLD) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new RenderTask(batch, output, start, middle),
+                        new RenderTask(batch, output, middle, end));
+                return;
+            }
+
+            Buffer buffer = buffers.get();
+            try {
+                for (int i = start; i < end; i++) {
+                    String name = batch.names[i];
+                    // names are rarely repeated in a batch, extract without caching
+                    String text = InitialsExtractor.extract(name, options.initials);
+                    int color = palette.getColor(name);
+
+                    buffer.reset();
+                    renderer.render(text, color, buffer);
+
+                    int shard = (int) ((batch.first + i) % output.shardCount());
+                    batch.texts[i] = text;
+                    batch.colors[i] = color;
+                    batch.shards[i] = shard;
+                    batch.lengths[i] = buffer.size();
+                    batch.offsets[i] = output.append(shard, buffer.bytes(), buffer.size());
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Reusable per-thread encode buffer that exposes its backing array.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        private Buffer() {
+            super(16 * 1024);
+        }
+
+        private byte[] bytes() {
+            return buf;
+        }
+    }
+}
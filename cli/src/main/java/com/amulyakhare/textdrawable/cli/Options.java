@@ -0,0 +1,131 @@
+package com.amulyakhare.textdrawable.cli;
+
+import com.amulyakhare.textdrawable.headless.AvatarRenderer;
+import com.amulyakhare.textdrawable.util.ColorGenerator;
+import com.amulyakhare.textdrawable.util.InitialsExtractor;
+
+import java.io.File;
+
+/**
+ * Command line options of {@link AvatarGenerator}.
+ */
+final class Options {
+
+    static final String USAGE = "usage: avatar-generator --input <file|-> --output <dir> [options]\n"
+            + "  --header <bool>     skip the first line of the input (default: false)\n"
+            + "  --column <n>        CSV column holding the name, 0 based (default: whole line)\n"
+            + "  --shape <s>         rect, round or roundRect (default: rect)\n"
+            + "  --radius <px>       corner radius for roundRect (default: 10)\n"
+            + "  --size <px>         width and height of the avatars (default: 96)\n"
+            + "  --border <px>       border thickness (default: 0)\n"
+            + "  --initials <n>      initials per name, 1 to 3 (default: 1)\n"
+            + "  --palette <p>       default or material (default: material)\n"
+            + "  --format <f>        image format (default: png)\n"
+            + "  --quality <q>       compression quality from 0 (smallest) to 1 (fastest) (default: 0.75)\n"
+            + "  --shards <n>        number of output shard files (default: 16)\n"
+            + "  --threads <n>       rendering threads (default: number of cores)\n"
+            + "  --batch <n>         names read and rendered per batch (default: 4096)\n";
+
+    String input;
+    File output;
+    boolean header;
+    int column = -1;
+    String shape = "rect";
+    int radius = 10;
+    int size = 96;
+    int border;
+    int initials = 1;
+    String palette = "material";
+    String format = "png";
+    float quality = 0.75f;
+    int shards = 16;
+    int threads = Runtime.getRuntime().availableProcessors();
+    int batch = 4096;
+
+    // resolved by parse, which reports invalid values like any other usage error
+    AvatarRenderer renderer;
+    ColorGenerator colors;
+
+    static Options parse(String[] args) {
+        Options options = new Options();
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("missing value for " + name);
+            }
+            String value = args[++i];
+            if ("--input".equals(name)) {
+                options.input = value;
+            } else if ("--output".equals(name)) {
+                options.output = new File(value);
+            } else if ("--header".equals(name)) {
+                options.header = Boolean.parseBoolean(value);
+            } else if ("--column".equals(name)) {
+                options.column = Integer.parseInt(value);
+            } else if ("--shape".equals(name)) {
+                options.shape = value;
+            } else if ("--radius".equals(name)) {
+                options.radius = Integer.parseInt(value);
+            } else if ("--size".equals(name)) {
+                options.size = Integer.parseInt(value);
+            } else if ("--border".equals(name)) {
+                options.border = Integer.parseInt(value);
+            } else if ("--initials".equals(name)) {
+                options.initials = Integer.parseInt(value);
+            } else if ("--palette".equals(name)) {
+                options.palette = value;
+            } else if ("--format".equals(name)) {
+                options.format = value;
+            } else if ("--quality".equals(name)) {
+                options.quality = Float.parseFloat(value);
+            } else if ("--shards".equals(name)) {
+                options.shards = Integer.parseInt(value);
+            } else if ("--threads".equals(name)) {
+                options.threads = Integer.parseInt(value);
+            } else if ("--batch".equals(name)) {
+                options.batch = Integer.parseInt(value);
+            } else {
+                throw new IllegalArgumentException("unknown option " + name);
+            }
+        }
+        if (options.input == null || options.output == null) {
+            throw new IllegalArgumentException("--input and --output are required");
+        }
+        if (options.shards <= 0 || options.threads <= 0 || options.batch <= 0) {
+            throw new IllegalArgumentException("--shards, --threads and --batch must be positive");
+        }
+        if (options.initials < 1 || options.initials > InitialsExtractor.MAX_INITIALS) {
+            throw new IllegalArgumentException("--initials must be between 1 and " + InitialsExtractor.MAX_INITIALS);
+        }
+        options.renderer = options.createRenderer();
+        options.colors = options.resolvePalette();
+        return options;
+    }
+
+    private AvatarRenderer createRenderer() {
+        AvatarRenderer.Builder builder = AvatarRenderer.builder()
+                .size(size, size)
+                .withBorder(border)
+                .format(format)
+                .compressionQuality(quality);
+        if ("rect".equals(shape)) {
+            builder.rect();
+        } else if ("round".equals(shape)) {
+            builder.round();
+        } else if ("roundRect".equals(shape)) {
+            builder.roundRect(radius);
+        } else {
+            throw new IllegalArgumentException("unknown shape " + shape);
+        }
+        return builder.build();
+    }
+
+    private ColorGenerator resolvePalette() {
+        if ("default".equals(palette)) {
+            return ColorGenerator.DEFAULT;
+        } else if ("material".equals(palette)) {
+            return ColorGenerator.MATERIAL;
+        }
+        throw new IllegalArgumentException("unknown palette " + palette);
+    }
+}
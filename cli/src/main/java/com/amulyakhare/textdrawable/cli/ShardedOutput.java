@@ -0,0 +1,70 @@
+package com.amulyakhare.textdrawable.cli;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Appends encoded avatars to a fixed number of shard files, so millions of avatars end up
+ * in a handful of files instead of millions. Every shard has its own lock, writers of
+ * different shards never wait for each other.
+ */
+final class ShardedOutput {
+
+    private final Shard[] shards;
+
+    ShardedOutput(File directory, String extension, int count) throws IOException {
+        shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(new File(directory, fileName(i, extension)));
+        }
+    }
+
+    int shardCount() {
+        return shards.length;
+    }
+
+    static String fileName(int shard, String extension) {
+        return String.format("avatars-%05d.%s.bin", shard, extension);
+    }
+
+    /**
+     * @return the offset of the avatar within the shard file
+     */
+    long append(int shard, byte[] bytes, int length) throws IOException {
+        return shards[shard].append(bytes, length);
+    }
+
+    void close() throws IOException {
+        IOException failure = null;
+        for (Shard shard : shards) {
+            try {
+                shard.out.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class Shard {
+
+        private final OutputStream out;
+        private long size;
+
+        private Shard(File file) throws IOException {
+            out = new BufferedOutputStream(new FileOutputStream(file), 256 * 1024);
+        }
+
+        private synchronized long append(byte[] bytes, int length) throws IOException {
+            long offset = size;
+            out.write(bytes, 0, length);
+            size += length;
+            return offset;
+        }
+    }
+}
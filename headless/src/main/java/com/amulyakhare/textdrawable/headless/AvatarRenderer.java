@@ -0,0 +1,370 @@
+package com.amulyakhare.textdrawable.headless;
+
+import com.amulyakhare.textdrawable.util.ColorGenerator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+/**
+ * Renders TextDrawable style tiles on the JVM with Java2D and encodes them straight into
+ * a caller supplied stream or buffer. Layout mirrors the Android drawable: the text is
+ * centered on {@code height / 2 - (descent + ascent) / 2}, the font size defaults to half
+ * the smaller side and the border is drawn in {@link ColorGenerator#getDarkerShade(int)}.
+ *
+ * <pre>
+ * AvatarRenderer renderer = AvatarRenderer.builder()
+ *         .size(96, 96)
+ *         .withBorder(4)
+ *         .round()
+ *         .build();
+ * renderer.render("A", ColorGenerator.MATERIAL, out);
+ * </pre>
+ *
+ * Instances are immutable and can be shared between threads; every thread renders into
+ * its own image and encoder.
+ */
+public final class AvatarRenderer {
+
+    private final int width;
+    private final int height;
+    private final AvatarShape shape;
+    private final int radius;
+    private final int borderThickness;
+    private final int textColor;
+    private final boolean autoTextColor;
+    private final boolean toUpperCase;
+    private final Font font;
+    private final String format;
+    private final float compressionQuality;
+
+    private final ThreadLocal<Canvas> canvas = new ThreadLocal<Canvas>() {
+        @Override
+        protected Canvas initialValue() {
+            return new Canvas();
+        }
+    };
+
+    private AvatarRenderer(Builder builder) {
+        width = builder.width;
+        height = builder.height;
+        shape = builder.shape;
+        radius = builder.radius;
+        borderThickness = builder.borderThickness;
+        textColor = builder.textColor;
+        autoTextColor = builder.autoTextColor;
+        toUpperCase = builder.toUpperCase;
+        format = builder.format;
+        compressionQuality = builder.compressionQuality;
+
+        int fontSize = builder.fontSize < 0 ? (Math.min(width, height) / 2) : builder.fontSize;
+        font = new Font(builder.fontFamily, builder.isBold ? Font.BOLD : Font.PLAIN, fontSize);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Renders the tile into a new image.
+     */
+    public BufferedImage render(String text, int color) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            setHints(graphics);
+            draw(graphics, text, color);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Renders the tile with the color {@code generator} picks for {@code text} and encodes
+     * it into {@code out}, which is neither flushed nor closed.
+     */
+    public void render(String text, ColorGenerator generator, OutputStream out) throws IOException {
+        render(text, generator.getColor(text), out);
+    }
+
+    public void render(String text, int color, OutputStream out) throws IOException {
+        Canvas canvas = this.canvas.get();
+        canvas.clear();
+        draw(canvas.graphics, text, color);
+        canvas.encode(out);
+    }
+
+    /**
+     * Encodes the tile at the position of {@code out} and advances it.
+     *
+     * @return the number of bytes written
+     * @throws BufferOverflowException if the encoded image does not fit
+     */
+    public int render(String text, int color, ByteBuffer out) throws IOException {
+        int start = out.position();
+        render(text, color, new ByteBufferOutputStream(out));
+        return out.position() - start;
+    }
+
+    private void draw(Graphics2D graphics, String text, int color) {
+        // shape
+        graphics.setColor(new Color(color, true));
+        graphics.fill(shape(0, 0, width, height));
+
+        // border, inset by half its thickness like the Android drawable
+        if (borderThickness > 0) {
+            int inset = borderThickness / 2;
+            graphics.setColor(new Color(ColorGenerator.getDarkerShade(color), true));
+            graphics.setStroke(new BasicStroke(borderThickness));
+            graphics.draw(shape(inset, inset, width - 2 * inset, height - 2 * inset));
+        }
+
+        // text
+        if (toUpperCase) {
+            text = text.toUpperCase();
+        }
+        if (text.isEmpty()) {
+            return;
+        }
+        graphics.setFont(font);
+        graphics.setColor(new Color(autoTextColor ? ColorGenerator.getContrastColor(color) : textColor, true));
+        FontRenderContext context = graphics.getFontRenderContext();
+        LineMetrics metrics = font.getLineMetrics(text, context);
+        float textWidth = (float) font.getStringBounds(text, context).getWidth();
+        // Java2D ascent is positive, Android's is negative
+        float x = width / 2 - textWidth / 2;
+        float y = height / 2 - ((metrics.getDescent() - metrics.getAscent()) / 2);
+        graphics.drawString(text, x, y);
+    }
+
+    private Shape shape(float x, float y, float w, float h) {
+        switch (shape) {
+            case ROUND:
+                return new Ellipse2D.Float(x, y, w, h);
+            case ROUND_RECT:
+                return new RoundRectangle2D.Float(x, y, w, h, 2 * radius, 2 * radius);
+            default:
+                return new Rectangle2D.Float(x, y, w, h);
+        }
+    }
+
+    private static void setHints(Graphics2D graphics) {
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Per-thread image, graphics and encoder, reused for every tile the thread renders.
+     */
+    private final class Canvas {
+
+        private final BufferedImage image;
+        private final Graphics2D graphics;
+        private final ImageWriter writer;
+        private final ImageWriteParam param;
+        private final IIOImage output;
+
+        private Canvas() {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            graphics = image.createGraphics();
+            setHints(graphics);
+            writer = ImageIO.getImageWritersByFormatName(format).next();
+            param = writer.getDefaultWriteParam();
+            if (compressionQuality >= 0 && param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(compressionQuality);
+            }
+            output = new IIOImage(image, null, null);
+        }
+
+        private void clear() {
+            graphics.setComposite(AlphaComposite.Clear);
+            graphics.fillRect(0, 0, width, height);
+            graphics.setComposite(AlphaComposite.SrcOver);
+        }
+
+        private void encode(OutputStream out) throws IOException {
+            // in memory cache, ImageIO's default file cache is far slower for small images
+            ImageOutputStream stream = new MemoryCacheImageOutputStream(out);
+            try {
+                writer.setOutput(stream);
+                writer.write(null, output, param);
+            } finally {
+                writer.reset();
+                stream.close();
+            }
+        }
+    }
+
+    private static final class ByteBufferOutputStream extends OutputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferOutputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) {
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            buffer.put(bytes, offset, length);
+        }
+    }
+
+    public static final class Builder {
+
+        private int width = 96;
+        private int height = 96;
+        private AvatarShape shape = AvatarShape.RECT;
+        private int radius;
+        private int borderThickness;
+        private int textColor = 0xffffffff;
+        private boolean autoTextColor;
+        private String fontFamily = Font.SANS_SERIF;
+        private int fontSize = -1;
+        private boolean isBold;
+        private boolean toUpperCase;
+        private String format = "png";
+        private float compressionQuality = -1;
+
+        private Builder() {
+        }
+
+        public Builder size(int width, int height) {
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("size must be positive");
+            }
+            this.width = width;
+            this.height = height;
+            return this;
+        }
+
+        public Builder textColor(int color) {
+            this.textColor = color;
+            this.autoTextColor = false;
+            return this;
+        }
+
+        /**
+         * Pick white or dark text for each tile color like the Android builder's
+         * autoTextColor().
+         */
+        public Builder autoTextColor() {
+            this.autoTextColor = true;
+            return this;
+        }
+
+        public Builder withBorder(int thickness) {
+            this.borderThickness = thickness;
+            return this;
+        }
+
+        public Builder useFont(String family) {
+            this.fontFamily = family;
+            return this;
+        }
+
+        public Builder fontSize(int size) {
+            this.fontSize = size;
+            return this;
+        }
+
+        public Builder bold() {
+            this.isBold = true;
+            return this;
+        }
+
+        public Builder toUpperCase() {
+            this.toUpperCase = true;
+            return this;
+        }
+
+        /**
+         * Image format name understood by ImageIO, "png" by default. Formats such as
+         * "webp" need an ImageIO plugin on the classpath.
+         */
+        public Builder format(String format) {
+            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+            if (!writers.hasNext()) {
+                throw new IllegalArgumentException("no ImageIO writer for " + format);
+            }
+            this.format = format;
+            return this;
+        }
+
+        /**
+         * Trades encoded size for speed, between 0 (smallest) and 1 (fastest); for PNG
+         * 0.75 encodes noticeably faster than the writer's default. Negative values keep
+         * the default.
+         */
+        public Builder compressionQuality(float quality) {
+            if (quality > 1) {
+                throw new IllegalArgumentException("quality > 1");
+            }
+            this.compressionQuality = quality;
+            return this;
+        }
+
+        public Builder shape(AvatarShape shape, int radius) {
+            this.shape = shape;
+            this.radius = radius;
+            return this;
+        }
+
+        public Builder rect() {
+            return shape(AvatarShape.RECT, 0);
+        }
+
+        public Builder round() {
+            return shape(AvatarShape.ROUND, 0);
+        }
+
+        public Builder roundRect(int radius) {
+            return shape(AvatarShape.ROUND_RECT, radius);
+        }
+
+        public AvatarRenderer build() {
+            return new AvatarRenderer(this);
+        }
+    }
+}
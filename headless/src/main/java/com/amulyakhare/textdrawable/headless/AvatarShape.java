@@ -0,0 +1,10 @@
+package com.amulyakhare.textdrawable.headless;
+
+/**
+ * Tile shapes, matching the shapes of the Android TextDrawable builder.
+ */
+public enum AvatarShape {
+    RECT,
+    ROUND,
+    ROUND_RECT
+}
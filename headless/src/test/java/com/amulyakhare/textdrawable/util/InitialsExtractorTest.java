@@ -0,0 +1,93 @@
+package com.amulyakhare.textdrawable.util;
+
+import junit.framework.TestCase;
+
+/**
+ * Initials of {@link InitialsExtractor}, run on the JVM with the headless module:
+ * {@code ./gradlew :headless:test}
+ */
+public class InitialsExtractorTest extends TestCase {
+
+    private static final String FLAG_US = "🇺🇸";
+    private static final String PARTY_POPPER = "🎉";
+    // man, zero width joiner, woman, zero width joiner, girl
+    private static final String FAMILY = "👨‍👩‍👧";
+    // waving hand with a medium skin tone
+    private static final String WAVE = "👋🏽";
+
+    public void testOneInitialIsTheFirstWord() {
+        assertEquals("S", InitialsExtractor.extract("Sherlock Holmes", 1));
+        assertEquals("J", InitialsExtractor.extract("John Ronald Tolkien", 1));
+        assertEquals("I", InitialsExtractor.extract("Iron Man", 1));
+        assertEquals("A", InitialsExtractor.extract("alice", 1));
+    }
+
+    public void testTwoInitialsAreTheFirstAndLastWord() {
+        assertEquals("SH", InitialsExtractor.extract("Sherlock Holmes", 2));
+        assertEquals("JT", InitialsExtractor.extract("John Ronald Tolkien", 2));
+        assertEquals("JT", InitialsExtractor.extract("John Ronald Reuel Tolkien", 2));
+        assertEquals("A", InitialsExtractor.extract("alice", 2));
+    }
+
+    public void testThreeInitials() {
+        assertEquals("JRT", InitialsExtractor.extract("John Ronald Tolkien", 3));
+        assertEquals("JRT", InitialsExtractor.extract("John Ronald Reuel Tolkien", 3));
+        assertEquals("SH", InitialsExtractor.extract("Sherlock Holmes", 3));
+    }
+
+    public void testSeparators() {
+        assertEquals("MW", InitialsExtractor.extract("Mary-Jane Watson", 2));
+        assertEquals("MJW", InitialsExtractor.extract("Mary-Jane Watson", 3));
+        assertEquals("M", InitialsExtractor.extract("Mary-Jane Watson", 1));
+        assertEquals("JS", InitialsExtractor.extract("  john_smith  ", 2));
+        assertEquals("DA", InitialsExtractor.extract("(Dr.) Ada", 2));
+        assertEquals("", InitialsExtractor.extract(" - ", 2));
+        assertEquals("", InitialsExtractor.extract("", 2));
+    }
+
+    public void testUpperCaseKeepsOneLetterPerInitial() {
+        assertEquals("ßM", InitialsExtractor.extract("ßen Müller", 2));
+        assertEquals("ﬀ", InitialsExtractor.extract("ﬀoo", 1));
+        assertEquals("I", InitialsExtractor.extract("ibrahim", 1));
+        assertEquals("ÉL", InitialsExtractor.extract("émile lebrun", 2));
+        // decomposed accent stays on its letter
+        assertEquals("ÉL", InitialsExtractor.extract("émile lebrun", 2));
+    }
+
+    public void testEmoji() {
+        assertEquals(PARTY_POPPER, InitialsExtractor.extract(PARTY_POPPER + " Party Crew", 2));
+        assertEquals(FLAG_US, InitialsExtractor.extract(FLAG_US + " US", 2));
+        assertEquals(FAMILY, InitialsExtractor.extract(FAMILY + " Family", 3));
+        assertEquals(WAVE, InitialsExtractor.extract(WAVE + " Hi", 1));
+    }
+
+    public void testUnspacedScripts() {
+        // Mao Zedong, Yamada Taro in hiragana, Kim in hangul
+        assertEquals("毛", InitialsExtractor.extract("毛泽东", 2));
+        assertEquals("や", InitialsExtractor.extract("やまだ たろう", 2));
+        assertEquals("김", InitialsExtractor.extract("김철수", 3));
+    }
+
+    public void testCacheSharesResults() {
+        InitialsExtractor initials = new InitialsExtractor(2, 2);
+        String first = initials.get("Sherlock Holmes");
+        assertEquals("SH", first);
+        assertSame(first, initials.get("Sherlock Holmes"));
+        assertSame(first, initials.get("Sarah Hall"));
+        assertEquals(1, initials.hitCount());
+        assertEquals(2, initials.missCount());
+    }
+
+    public void testRejectsOutOfRangeCount() {
+        try {
+            new InitialsExtractor(0, 16);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new InitialsExtractor(InitialsExtractor.MAX_INITIALS + 1, 16);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package com.amulyakhare.textdrawable;
+
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.graphics.drawable.shapes.OvalShape;
+import android.graphics.drawable.shapes.RectShape;
+import android.graphics.drawable.shapes.RoundRectShape;
+
+import com.amulyakhare.textdrawable.util.ColorGenerator;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+
+/**
+ * Compact binary encoding of a drawable configuration, for persisting or shipping the
+ * avatars of large offline lists. A record takes a few bytes plus the UTF-8 text:
+ *
+ * <pre>
+ * version   1 byte
+ * flags     varint, see the FLAG_ constants
+ * color     varint palette index, or 4 bytes ARGB without FLAG_PALETTE
+ * [radius]  varint, round rects only
+ * [border]  varint, with FLAG_BORDER
+ * [size]    varint width, varint height, with FLAG_SIZE
+ * [font]    varint font size, with FLAG_FONT_SIZE
+ * [color]   4 bytes ARGB text color, with FLAG_TEXT_COLOR
+ * text      varint byte length, UTF-8 bytes
+ * </pre>
+ *
+ * The palette itself is not encoded, records must be decoded with the palette they were
+ * encoded with, and so is the font.
+ *
+ * <pre>
+ * AvatarDescriptor.encode(drawable, ColorGenerator.MATERIAL, buffer);
+ * ...
+ * AvatarDescriptor.Decoder decoder = new AvatarDescriptor.Decoder(ColorGenerator.MATERIAL, null);
+ * while (buffer.hasRemaining()) {
+ *     drawables.add(decoder.decode(buffer));
+ * }
+ * </pre>
+ */
+public final class AvatarDescriptor {
+
+    public static final int VERSION = 1;
+
+    public static final int FLAG_PALETTE = 1;
+    public static final int FLAG_BORDER = 1 << 3;
+    public static final int FLAG_BOLD = 1 << 4;
+    public static final int FLAG_UPPER_CASE = 1 << 5;
+    public static final int FLAG_AUTO_TEXT_COLOR = 1 << 6;
+    public static final int FLAG_SIZE = 1 << 7;
+    public static final int FLAG_FONT_SIZE = 1 << 8;
+    public static final int FLAG_TEXT_COLOR = 1 << 9;
+    public static final int FLAG_FIT_TEXT = 1 << 10;
+
+    // two bits of the flags hold the shape
+    private static final int SHAPE_SHIFT = 1;
+    private static final int SHAPE_MASK = 3 << SHAPE_SHIFT;
+    private static final int SHAPE_RECT = 0;
+    private static final int SHAPE_ROUND = 1;
+    private static final int SHAPE_ROUND_RECT = 2;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private AvatarDescriptor() {
+    }
+
+    /**
+     * Appends the configuration of {@code drawable} to {@code out}. Its color is stored as
+     * an index of {@code palette} if the palette holds it, as ARGB otherwise.
+     *
+     * @param palette the palette the drawable colors come from, may be null
+     * @return the number of bytes written
+     * @throws java.nio.BufferOverflowException if the record does not fit
+     */
+    public static int encode(TextDrawable drawable, ColorGenerator palette, ByteBuffer out) {
+        int start = out.position();
+        TextDrawable.Style style = drawable.getStyle();
+        int color = drawable.getColor();
+        int index = palette == null ? -1 : indexOf(palette, color);
+
+        int shape = shapeOf(style.getShape());
+        int flags = shape << SHAPE_SHIFT;
+        if (index >= 0) {
+            flags |= FLAG_PALETTE;
+        }
+        if (style.getBorderThickness() > 0) {
+            flags |= FLAG_BORDER;
+        }
+        if (style.isBold()) {
+            flags |= FLAG_BOLD;
+        }
+        if (style.isUpperCase()) {
+            flags |= FLAG_UPPER_CASE;
+        }
+        if (style.isAutoTextColor()) {
+            flags |= FLAG_AUTO_TEXT_COLOR;
+        }
+        else if (style.getTextColor() != Color.WHITE) {
+            flags |= FLAG_TEXT_COLOR;
+        }
+        if (style.getWidth() >= 0 || style.getHeight() >= 0) {
+            flags |= FLAG_SIZE;
+        }
+        if (style.getFontSize() >= 0) {
+            flags |= FLAG_FONT_SIZE;
+        }
+        if (style.isFittingText()) {
+            flags |= FLAG_FIT_TEXT;
+        }
+
+        out.put((byte) VERSION);
+        putVarint(out, flags);
+        if (index >= 0) {
+            putVarint(out, index);
+        }
+        else {
+            out.putInt(color);
+        }
+        if (shape == SHAPE_ROUND_RECT) {
+            putVarint(out, (int) style.getRadius());
+        }
+        if ((flags & FLAG_BORDER) != 0) {
+            putVarint(out, style.getBorderThickness());
+        }
+        if ((flags & FLAG_SIZE) != 0) {
+            // -1 (use the bounds) is stored as 0
+            putVarint(out, style.getWidth() + 1);
+            putVarint(out, style.getHeight() + 1);
+        }
+        if ((flags & FLAG_FONT_SIZE) != 0) {
+            putVarint(out, style.getFontSize());
+        }
+        if ((flags & FLAG_TEXT_COLOR) != 0) {
+            out.putInt(style.getTextColor());
+        }
+        putUtf8(out, drawable.getText());
+        return out.position() - start;
+    }
+
+    private static int indexOf(ColorGenerator palette, int color) {
+        for (int i = 0, size = palette.size(); i < size; i++) {
+            if (palette.getColorAt(i) == color) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int shapeOf(RectShape shape) {
+        if (shape instanceof OvalShape) {
+            return SHAPE_ROUND;
+        }
+        if (shape instanceof RoundRectShape) {
+            return SHAPE_ROUND_RECT;
+        }
+        return SHAPE_RECT;
+    }
+
+    private static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.get();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    /**
+     * Writes the byte length and UTF-8 bytes of {@code text} without an intermediate array.
+     */
+    private static void putUtf8(ByteBuffer out, String text) {
+        int length = text.length();
+        int bytes = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            }
+            else if (c < 0x800) {
+                bytes += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            }
+            else {
+                bytes += 3;
+            }
+        }
+        putVarint(out, bytes);
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            }
+            else if (c < 0x800) {
+                out.put((byte) (0xc0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3f)));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                out.put((byte) (0xf0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+                out.put((byte) (0x80 | (codePoint & 0x3f)));
+            }
+            else {
+                // lone surrogates are kept as is, they decode to U+FFFD
+                out.put((byte) (0xe0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                out.put((byte) (0x80 | (c & 0x3f)));
+            }
+        }
+    }
+
+    private static String getUtf8(ByteBuffer in) {
+        int length = getVarint(in);
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String text;
+        if (in.hasArray()) {
+            // decode straight from the backing array
+            text = new String(in.array(), in.arrayOffset() + in.position(), length, UTF_8);
+            in.position(in.position() + length);
+        }
+        else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            text = new String(bytes, UTF_8);
+        }
+        return text;
+    }
+
+    /**
+     * Turns records back into drawables. Records with the same configuration share one
+     * {@link TextDrawable.Style}, so decoding a list builds a style per distinct
+     * configuration rather than per record. Not thread safe.
+     */
+    public static final class Decoder {
+
+        private final ColorGenerator palette;
+        private final Typeface font;
+        private final HashMap<Config, TextDrawable.Style> styles;
+        private final Config probe = new Config();
+
+        /**
+         * @param palette the palette the records were encoded with
+         * @param font    the font of the drawables, null for the builder's default
+         */
+        public Decoder(ColorGenerator palette, Typeface font) {
+            this.palette = palette;
+            this.font = font;
+            styles = new HashMap<Config, TextDrawable.Style>();
+        }
+
+        /**
+         * Reads one record at the position of {@code in} and advances it.
+         *
+         * @throws IllegalArgumentException if the record is malformed or of another version
+         * @throws BufferUnderflowException if the record is truncated
+         */
+        public TextDrawable decode(ByteBuffer in) {
+            int version = in.get() & 0xff;
+            if (version != VERSION) {
+                throw new IllegalArgumentException("unsupported version " + version);
+            }
+            Config config = probe;
+            config.flags = getVarint(in);
+            int color = (config.flags & FLAG_PALETTE) != 0 ? getVarint(in) : in.getInt();
+            int shape = (config.flags & SHAPE_MASK) >> SHAPE_SHIFT;
+            config.radius = shape == SHAPE_ROUND_RECT ? getVarint(in) : 0;
+            config.borderThickness = (config.flags & FLAG_BORDER) != 0 ? getVarint(in) : 0;
+            if ((config.flags & FLAG_SIZE) != 0) {
+                config.width = getVarint(in) - 1;
+                config.height = getVarint(in) - 1;
+            }
+            else {
+                config.width = -1;
+                config.height = -1;
+            }
+            config.fontSize = (config.flags & FLAG_FONT_SIZE) != 0 ? getVarint(in) : -1;
+            config.textColor = (config.flags & FLAG_TEXT_COLOR) != 0 ? in.getInt() : Color.WHITE;
+            String text = getUtf8(in);
+
+            // the palette bit does not change the style
+            boolean indexed = (config.flags & FLAG_PALETTE) != 0;
+            if (indexed && (color < 0 || color >= palette.size())) {
+                throw new IllegalArgumentException("palette index " + color + " out of range, the palette has "
+                        + palette.size() + " colors");
+            }
+            config.flags &= ~FLAG_PALETTE;
+            TextDrawable.Style style = styles.get(config);
+            if (style == null) {
+                style = config.newStyle(font);
+                styles.put(config.copy(), style);
+            }
+            return indexed ? style.build(text, palette, color) : style.build(text, color);
+        }
+
+        /**
+         * @return the number of distinct configurations decoded so far
+         */
+        public int getStyleCount() {
+            return styles.size();
+        }
+    }
+
+    private static final class Config {
+
+        private int flags;
+        private int radius;
+        private int borderThickness;
+        private int width;
+        private int height;
+        private int fontSize;
+        private int textColor;
+
+        private TextDrawable.Style newStyle(Typeface font) {
+            TextDrawable.IConfigBuilder builder = TextDrawable.builder().beginConfig()
+                    .withBorder(borderThickness)
+                    .width(width)
+                    .height(height)
+                    .fontSize(fontSize)
+                    .textColor(textColor);
+            if (font != null) {
+                builder.useFont(font);
+            }
+            if ((flags & FLAG_BOLD) != 0) {
+                builder.bold();
+            }
+            if ((flags & FLAG_UPPER_CASE) != 0) {
+                builder.toUpperCase();
+            }
+            if ((flags & FLAG_AUTO_TEXT_COLOR) != 0) {
+                builder.autoTextColor();
+            }
+            if ((flags & FLAG_FIT_TEXT) != 0) {
+                builder.fitText();
+            }
+            TextDrawable.IShapeBuilder shapes = builder.endConfig();
+            int shape = (flags & SHAPE_MASK) >> SHAPE_SHIFT;
+            if (shape == SHAPE_ROUND) {
+                return shapes.round().style();
+            }
+            if (shape == SHAPE_ROUND_RECT) {
+                return shapes.roundRect(radius).style();
+            }
+            return shapes.rect().style();
+        }
+
+        private Config copy() {
+            Config copy = new Config();
+            copy.flags = flags;
+            copy.radius = radius;
+            copy.borderThickness = borderThickness;
+            copy.width = width;
+            copy.height = height;
+            copy.fontSize = fontSize;
+            copy.textColor = textColor;
+            return copy;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Config)) {
+                return false;
+            }
+            Config config = (Config) o;
+            return flags == config.flags
+                    && radius == config.radius
+                    && borderThickness == config.borderThickness
+                    && width == config.width
+                    && height == config.height
+                    && fontSize == config.fontSize
+                    && textColor == config.textColor;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = flags;
+            result = 31 * result + radius;
+            result = 31 * result + borderThickness;
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + fontSize;
+            result = 31 * result + textColor;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.amulyakhare.textdrawable;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.shapes.OvalShape;
+import android.graphics.drawable.shapes.RectShape;
+import android.graphics.drawable.shapes.RoundRectShape;
+
+import com.amulyakhare.textdrawable.util.ColorGenerator;
+
+/**
+ * A group tile split into 2, 3 or 4 segments, each with its own text and color, e.g. for
+ * the avatar of a group chat:
+ *
+ * <pre>
+ * TextDrawable.Style style = TextDrawable.builder().round().style();
+ * GroupTextDrawable drawable = style.buildGroup(new String[]{"A", "B", "C"}, ColorGenerator.MATERIAL);
+ * </pre>
+ *
+ * Two segments are the left and right half, three a left half and two right quarters,
+ * four the quarters from top left to bottom right. Each segment is a path of its own, cut
+ * to the style's shape when the bounds change. The whole shape is filled with the color
+ * of the first segment and the other segments are drawn over it, split on whole pixels,
+ * so anti-aliased edges between segments never let the background show through. No
+ * clipping is needed; a layer is only used while the drawable is translucent. Text
+ * paints are shared with the style's {@link TextDrawable}s.
+ */
+public class GroupTextDrawable extends Drawable {
+
+    public static final int MIN_SEGMENTS = 2;
+    public static final int MAX_SEGMENTS = 4;
+
+    // start and sweep angle of each segment of an oval, by number of segments
+    private static final int[][] WEDGE_STARTS = {
+            {90, 270},
+            {90, 270, 0},
+            {180, 270, 90, 0}
+    };
+    private static final int[][] WEDGE_SWEEPS = {
+            {180, 180},
+            {180, 90, 90},
+            {90, 90, 90, 90}
+    };
+
+    // pulls the text of a quarter of an oval towards the center, off the curved edge
+    private static final float OVAL_QUARTER_TEXT_OFFSET = 0.65f;
+
+    private final TextDrawable.Style style;
+    private final String[] texts;
+    private final int[] colors;
+    private final int[] borderColors;
+    private final int[] textColors;
+
+    private final Path shapePath;
+    private final Path[] paths;
+    private final Path[] borderPaths;
+    private final Paint[] textPaints;
+    private final float[] textX;
+    private final float[] textY;
+
+    private final Paint paint;
+    private final Paint borderPaint;
+    // filtered copy of a shared text paint, see setColorFilter
+    private Paint filteredTextPaint;
+    private int alpha = 0xff;
+    private ColorFilter colorFilter;
+
+    private final RectF segment = new RectF();
+    private final RectF rect = new RectF();
+    private final float[] radii = new float[8];
+
+    GroupTextDrawable(TextDrawable.Style style, String[] texts, int[] colors) {
+        int count = texts.length;
+        if (count < MIN_SEGMENTS || count > MAX_SEGMENTS) {
+            throw new IllegalArgumentException("A group has " + MIN_SEGMENTS + " to " + MAX_SEGMENTS + " segments");
+        }
+        if (colors.length != count) {
+            throw new IllegalArgumentException("texts and colors differ in length");
+        }
+
+        this.style = style;
+        this.texts = new String[count];
+        this.colors = colors.clone();
+        borderColors = new int[count];
+        textColors = new int[count];
+        for (int i = 0; i < count; i++) {
+            this.texts[i] = style.isUpperCase() ? texts[i].toUpperCase() : texts[i];
+            borderColors[i] = ColorGenerator.getDarkerShade(colors[i]);
+            textColors[i] = style.textColorFor(colors[i]);
+        }
+
+        shapePath = new Path();
+        paths = new Path[count];
+        textPaints = new Paint[count];
+        textX = new float[count];
+        textY = new float[count];
+        for (int i = 0; i < count; i++) {
+            paths[i] = new Path();
+        }
+
+        paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        if (style.getBorderThickness() > 0) {
+            borderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            borderPaint.setStyle(Paint.Style.STROKE);
+            borderPaint.setStrokeWidth(style.getBorderThickness());
+            borderPaths = new Path[count];
+            for (int i = 0; i < count; i++) {
+                borderPaths[i] = new Path();
+            }
+        }
+        else {
+            borderPaint = null;
+            borderPaths = null;
+        }
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        super.onBoundsChange(bounds);
+        rect.set(bounds);
+        layoutShape(rect);
+        layoutSegments(paths, rect);
+        if (borderPaths != null) {
+            // the border lies inside the bounds, like the border of a TextDrawable
+            float inset = style.getBorderThickness() / 2f;
+            rect.inset(inset, inset);
+            layoutSegments(borderPaths, rect);
+            rect.set(bounds);
+        }
+        layoutTexts(rect);
+    }
+
+    private void layoutShape(RectF bounds) {
+        RectShape shape = style.getShape();
+        shapePath.reset();
+        if (shape instanceof OvalShape) {
+            shapePath.addOval(bounds, Path.Direction.CW);
+        }
+        else if (shape instanceof RoundRectShape) {
+            shapePath.addRoundRect(bounds, style.getRadius(), style.getRadius(), Path.Direction.CW);
+        }
+        else {
+            shapePath.addRect(bounds, Path.Direction.CW);
+        }
+    }
+
+    private void layoutSegments(Path[] paths, RectF bounds) {
+        RectShape shape = style.getShape();
+        int count = paths.length;
+        for (int i = 0; i < count; i++) {
+            Path path = paths[i];
+            path.reset();
+            if (shape instanceof OvalShape) {
+                int start = WEDGE_STARTS[count - MIN_SEGMENTS][i];
+                int sweep = WEDGE_SWEEPS[count - MIN_SEGMENTS][i];
+                path.moveTo(Math.round(bounds.centerX()), Math.round(bounds.centerY()));
+                path.arcTo(bounds, start, sweep);
+                path.close();
+            }
+            else if (shape instanceof RoundRectShape) {
+                segmentRect(count, i, bounds, segment);
+                // only round the corners the segment shares with the tile
+                float radius = style.getRadius();
+                setCornerRadius(0, segment.left == bounds.left && segment.top == bounds.top, radius);
+                setCornerRadius(2, segment.right == bounds.right && segment.top == bounds.top, radius);
+                setCornerRadius(4, segment.right == bounds.right && segment.bottom == bounds.bottom, radius);
+                setCornerRadius(6, segment.left == bounds.left && segment.bottom == bounds.bottom, radius);
+                path.addRoundRect(segment, radii, Path.Direction.CW);
+            }
+            else {
+                segmentRect(count, i, bounds, segment);
+                path.addRect(segment, Path.Direction.CW);
+            }
+        }
+    }
+
+    private void setCornerRadius(int index, boolean rounded, float radius) {
+        radii[index] = radii[index + 1] = rounded ? radius : 0;
+    }
+
+    private void layoutTexts(RectF bounds) {
+        boolean oval = style.getShape() instanceof OvalShape;
+        int count = texts.length;
+        for (int i = 0; i < count; i++) {
+            segmentRect(count, i, bounds, segment);
+            int fontSize = style.getFontSize() < 0
+                    ? (int) (Math.min(segment.width(), segment.height()) / 2)
+                    : style.getFontSize();
+            Paint textPaint = style.getTextPaint(textColors[i], fontSize);
+            textPaints[i] = textPaint;
+
+            float x = segment.centerX();
+            float y = segment.centerY();
+            if (oval && segment.width() < bounds.width() && segment.height() < bounds.height()) {
+                x = bounds.centerX() + (x - bounds.centerX()) * OVAL_QUARTER_TEXT_OFFSET;
+                y = bounds.centerY() + (y - bounds.centerY()) * OVAL_QUARTER_TEXT_OFFSET;
+            }
+            textX[i] = x;
+            textY[i] = y - ((textPaint.descent() + textPaint.ascent()) / 2);
+        }
+    }
+
+    /**
+     * Sets {@code out} to the rectangle of segment {@code index} of {@code count}. Segments
+     * split on whole pixels, so that neighbouring segments do not share partly covered
+     * pixels.
+     */
+    private static void segmentRect(int count, int index, RectF bounds, RectF out) {
+        float centerX = Math.round(bounds.centerX());
+        float centerY = Math.round(bounds.centerY());
+        boolean left = index == 0 || (count == 4 && index == 2);
+        out.left = left ? bounds.left : centerX;
+        out.right = left ? centerX : bounds.right;
+        if (count == 2 || (count == 3 && index == 0)) {
+            out.top = bounds.top;
+            out.bottom = bounds.bottom;
+        }
+        else {
+            boolean top = index == 1 || (count == 4 && index == 0);
+            out.top = top ? bounds.top : centerY;
+            out.bottom = top ? centerY : bounds.bottom;
+        }
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        int saveCount = -1;
+        if (alpha != 0xff) {
+            // segments are drawn over the filled shape, fade them together
+            saveCount = canvas.saveLayerAlpha(rect, alpha, Canvas.ALL_SAVE_FLAG);
+        }
+
+        // the first segment's color fills the whole shape, the seams between segments
+        // then blend with a segment color instead of the background
+        paint.setColor(colors[0]);
+        canvas.drawPath(shapePath, paint);
+
+        int count = texts.length;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                paint.setColor(colors[i]);
+                canvas.drawPath(paths[i], paint);
+            }
+
+            if (borderPaint != null) {
+                borderPaint.setColor(borderColors[i]);
+                canvas.drawPath(borderPaths[i], borderPaint);
+            }
+
+            Paint textPaint = textPaints[i];
+            if (textPaint == null) {
+                // not laid out yet
+                continue;
+            }
+            if (colorFilter != null) {
+                textPaint = filteredTextPaint(textPaint);
+            }
+            canvas.drawText(texts[i], textX[i], textY[i], textPaint);
+        }
+
+        if (saveCount >= 0) {
+            canvas.restoreToCount(saveCount);
+        }
+    }
+
+    private Paint filteredTextPaint(Paint shared) {
+        if (filteredTextPaint == null) {
+            filteredTextPaint = new Paint();
+        }
+        filteredTextPaint.set(shared);
+        filteredTextPaint.setColorFilter(colorFilter);
+        return filteredTextPaint;
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        this.alpha = alpha;
+        invalidateSelf();
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter cf) {
+        colorFilter = cf;
+        paint.setColorFilter(cf);
+        if (borderPaint != null) {
+            borderPaint.setColorFilter(cf);
+        }
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return style.getWidth();
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return style.getHeight();
+    }
+
+    public TextDrawable.Style getStyle() {
+        return style;
+    }
+
+    public int getSegmentCount() {
+        return texts.length;
+    }
+
+    public String getText(int segment) {
+        return texts[segment];
+    }
+
+    public int getColor(int segment) {
+        return colors[segment];
+    }
+}
@@ -0,0 +1,116 @@
+package com.amulyakhare.textdrawable;
+
+import android.graphics.Bitmap;
+
+import com.amulyakhare.textdrawable.util.ColorGenerator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Rasterizes a batch of texts with one style, one task per text, on the given executor.
+ * See {@link TextDrawable#prerender(List, ColorGenerator, TextDrawable.Style, Executor)}.
+ */
+class PrerenderBatch implements Future<List<Bitmap>> {
+
+    private final List<String> texts;
+    private final ColorGenerator generator;
+    private final TextDrawable.Style style;
+    private final int width;
+    private final int height;
+    private final Bitmap[] bitmaps;
+    private final CountDownLatch latch;
+    private volatile boolean cancelled;
+    // the first failure, later ones are dropped
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    PrerenderBatch(List<String> texts, ColorGenerator generator, TextDrawable.Style style, int width, int height) {
+        this.texts = texts;
+        this.generator = generator;
+        this.style = style;
+        this.width = width;
+        this.height = height;
+        bitmaps = new Bitmap[texts.size()];
+        latch = new CountDownLatch(bitmaps.length);
+    }
+
+    void start(Executor executor) {
+        for (int i = 0; i < bitmaps.length; i++) {
+            final int index = i;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (!cancelled && failure.get() == null) {
+                            bitmaps[index] = render(texts.get(index));
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
+        }
+    }
+
+    private Bitmap render(String text) {
+        return style.render(text, generator, generator.getColorIndex(text), width, height);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (latch.getCount() == 0) {
+            return false;
+        }
+        cancelled = true;
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return cancelled || latch.getCount() == 0;
+    }
+
+    @Override
+    public List<Bitmap> get() throws InterruptedException, ExecutionException {
+        if (!cancelled) {
+            latch.await();
+        }
+        return report();
+    }
+
+    @Override
+    public List<Bitmap> get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        if (!cancelled && !latch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return report();
+    }
+
+    private List<Bitmap> report() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        Throwable t = failure.get();
+        if (t != null) {
+            throw new ExecutionException(t);
+        }
+        return Collections.unmodifiableList(Arrays.asList(bitmaps));
+    }
+}
@@ -5,6 +5,19 @@ import android.graphics.drawable.ShapeDrawable;
 import android.graphics.drawable.shapes.OvalShape;
 import android.graphics.drawable.shapes.RectShape;
 import android.graphics.drawable.shapes.RoundRectShape;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.SparseArray;
+
+import com.amulyakhare.textdrawable.cache.GlyphCache;
+import com.amulyakhare.textdrawable.cache.TextMetricsCache;
+import com.amulyakhare.textdrawable.util.ColorGenerator;
+import com.amulyakhare.textdrawable.util.TypefaceRegistry;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 /**
  * @author amulya
@@ -12,109 +25,694 @@ import android.graphics.drawable.shapes.RoundRectShape;
  */
 public class TextDrawable extends ShapeDrawable {
 
-    private final Paint textPaint;
-    private final Paint borderPaint;
-    private static final float SHADE_FACTOR = 0.9f;
-    private final String text;
-    private final int color;
-    private final RectShape shape;
-    private final int height;
-    private final int width;
-    private final int fontSize;
-    private final float radius;
-    private final int borderThickness;
-
-    private TextDrawable(Builder builder) {
-        super(builder.shape);
-
-        // shape properties
-        shape = builder.shape;
-        height = builder.height;
-        width = builder.width;
-        radius = builder.radius;
+    private static final int MAX_CACHED_GLYPHS = 2;
+
+    // fitted texts are measured once at this size and scaled linearly
+    private static final int FIT_REFERENCE_SIZE = 100;
+
+    // share of the text box a fitted text may fill, keeps it off the edges
+    private static final float FIT_FILL = 0.85f;
+
+    // side of the square inscribed in a circle, relative to the diameter
+    private static final float INSCRIBED_SQUARE = 0.7071f;
+
+    private static final int TRANSITION_NONE = 0;
+    private static final int TRANSITION_FADE = 1;
+    private static final int TRANSITION_FLIP = 2;
+
+    private Style style;
+    // false for drawables the library only renders with, kept out of the style's metrics
+    private final boolean metered;
+    private String text;
+    private int color;
+    private Paint borderPaint;
+    private boolean ownsBorderPaint;
+    private final RectF borderRect;
+    private int textColor;
+    private int textSize;
+    private Paint textPaint;
+    private boolean ownsTextPaint;
+    private float textX;
+    private float textY;
+
+    // glyph layout, only used when the style has a glyph cache
+    private GlyphCache.Glyph[] glyphs;
+    private float[] glyphX;
+    private float[] glyphY;
+    private int glyphCount;
+
+    // recorded draw commands, only used when the style records a display list and the
+    // drawable is drawn into software canvases
+    private Picture picture;
+    private boolean pictureValid;
+
+    // whether the drawable sits in a TextDrawablePool, waiting to be reused
+    boolean pooled;
+
+    // check mark shown instead of the text, see flipToCheckMark
+    private boolean checkMark;
+    private Path checkPath;
+    private Paint checkPaint;
+
+    // running transition, animating from the previous face to the current one
+    private int transition;
+    private long transitionStart;
+    private long transitionDuration;
+    private String fromText;
+    private int fromColor;
+    private boolean fromCheckMark;
+    private Paint transitionTextPaint;
+    private Paint transitionBorderPaint;
+
+    /**
+     * @param textColor         the text color, resolved by the style for {@code color}
+     * @param sharedBorderPaint the style's border paint for {@code color}, or null to
+     *                          create one for this drawable
+     * @param metered           whether builds and draws are reported to the style's metrics
+     */
+    private TextDrawable(Style style, String text, int color, int textColor, Paint sharedBorderPaint,
+                         boolean metered) {
+        super(style.newShape());
+        this.style = style;
+        this.metered = metered;
 
         // text and color
-        text = builder.toUpperCase ? builder.text.toUpperCase() : builder.text;
-        color = builder.color;
-
-        // text paint settings
-        fontSize = builder.fontSize;
-        textPaint = new Paint();
-        textPaint.setColor(builder.textColor);
-        textPaint.setAntiAlias(true);
-        textPaint.setFakeBoldText(builder.isBold);
-        textPaint.setStyle(Paint.Style.FILL);
-        textPaint.setTypeface(builder.font);
-        textPaint.setTextAlign(Paint.Align.CENTER);
-        textPaint.setStrokeWidth(builder.borderThickness);
+        this.text = style.toUpperCase ? text.toUpperCase() : text;
+        this.color = color;
+        this.textColor = textColor;
+
+        // text paint is shared with every drawable of the style until it has to diverge
+        textPaint = style.textPaint;
 
         // border paint settings
-        borderThickness = builder.borderThickness;
-        borderPaint = new Paint();
-        borderPaint.setColor(getDarkerShade(color));
-        borderPaint.setStyle(Paint.Style.STROKE);
-        borderPaint.setStrokeWidth(borderThickness);
+        if (sharedBorderPaint != null) {
+            borderPaint = sharedBorderPaint;
+        }
+        else {
+            updateBorderPaint();
+        }
 
         // drawable paint color
         Paint paint = getPaint();
         paint.setColor(color);
 
+        borderRect = new RectF();
+        updateLayout(getBounds());
+
+        if (metered && style.metrics != null) {
+            style.metrics.onBuild(this);
+        }
+    }
+
+    private void updateBorderPaint() {
+        if (style.borderThickness > 0) {
+            // a border paint shared through the style must never be modified
+            if (!ownsBorderPaint) {
+                borderPaint = new Paint();
+                borderPaint.setStyle(Paint.Style.STROKE);
+                ownsBorderPaint = true;
+            }
+            borderPaint.setColor(ColorGenerator.getDarkerShade(color));
+            borderPaint.setStrokeWidth(style.borderThickness);
+        }
+        else {
+            borderPaint = null;
+            ownsBorderPaint = false;
+        }
     }
 
-    private int getDarkerShade(int color) {
-        return Color.rgb((int)(SHADE_FACTOR * Color.red(color)),
-                (int)(SHADE_FACTOR * Color.green(color)),
-                (int)(SHADE_FACTOR * Color.blue(color)));
+    /**
+     * Changes the text without reallocating any paint or shape, e.g. when a recycled view
+     * is bound to another item.
+     */
+    public void setText(CharSequence text) {
+        String value = style.toUpperCase ? text.toString().toUpperCase() : text.toString();
+        if (value.equals(this.text)) {
+            return;
+        }
+        this.text = value;
+        // the text is centered, only the glyph layout and a fitted size depend on it
+        if (style.glyphCache != null || style.fitText) {
+            updateLayout(getBounds());
+        }
+        pictureValid = false;
+        invalidateSelf();
+    }
+
+    public void setColor(int color) {
+        if (color == this.color) {
+            return;
+        }
+        this.color = color;
+        getPaint().setColor(color);
+        if (borderPaint != null) {
+            updateBorderPaint();
+        }
+        setTextColor(style.textColorFor(color));
+        pictureValid = false;
+        invalidateSelf();
+    }
+
+    /**
+     * Same as {@link #setColor(int)} with the color at {@code index} of {@code palette},
+     * sharing the style's border paint for that color.
+     */
+    public void setColor(ColorGenerator palette, int index) {
+        int color = palette.getColorAt(index);
+        if (color == this.color && !ownsBorderPaint) {
+            return;
+        }
+        this.color = color;
+        getPaint().setColor(color);
+        if (borderPaint != null) {
+            borderPaint = style.getBorderPaint(palette, index);
+            ownsBorderPaint = false;
+        }
+        setTextColor(style.textColorFor(palette, index));
+        pictureValid = false;
+        invalidateSelf();
+    }
+
+    /**
+     * Switches to the text paint of {@code textColor}, glyph masks are drawn in the color
+     * of the paint so the layout stays valid.
+     */
+    private void setTextColor(int textColor) {
+        if (textColor == this.textColor) {
+            return;
+        }
+        this.textColor = textColor;
+        if (ownsTextPaint) {
+            int alpha = textPaint.getAlpha();
+            textPaint.setColor(textColor);
+            textPaint.setAlpha(alpha);
+        }
+        else {
+            textPaint = style.getTextPaint(textColor, textSize);
+        }
+    }
+
+    /**
+     * Switches to another style, keeping the text, color, alpha and color filter.
+     */
+    public void setStyle(Style style) {
+        if (style == this.style) {
+            return;
+        }
+        this.style = style;
+        if (style.toUpperCase) {
+            text = text.toUpperCase();
+        }
+        textColor = style.textColorFor(color);
+        if (ownsTextPaint) {
+            // keep alpha and color filter set on this drawable
+            Paint paint = new Paint(style.textPaint);
+            paint.setColor(textColor);
+            paint.setAlpha(textPaint.getAlpha());
+            paint.setColorFilter(textPaint.getColorFilter());
+            textPaint = paint;
+        }
+        updateBorderPaint();
+        // resizes the shape to the bounds and invalidates
+        setShape(style.newShape());
+        updateLayout(getBounds());
+    }
+
+    /**
+     * Drops everything a previous user may have set on the drawable, so that a pooled
+     * drawable behaves like a freshly built one. The bounds are kept, the next user mostly
+     * shows it at the same size, and its shape is its own to resize.
+     */
+    void recycle() {
+        setCallback(null);
+        transition = TRANSITION_NONE;
+        fromText = null;
+        checkMark = false;
+        if (ownsTextPaint) {
+            textPaint = style.textPaint;
+            ownsTextPaint = false;
+        }
+        // lay out with the shared paint right away
+        updateLayout(getBounds());
+    }
+
+    /**
+     * Draws the current face of the drawable into a new ARGB_8888 bitmap of the given size.
+     * A copy is drawn, so the bounds and layout of this drawable are left alone and it can
+     * stay on screen meanwhile. A running transition is drawn as finished. The bitmap is
+     * drawn at full alpha and without color filter, so that it can be cached for every
+     * drawable of the same face; apply {@link #getAlpha()} and {@link #getColorFilter()}
+     * where the bitmap is drawn.
+     */
+    public Bitmap toBitmap(int width, int height) {
+        // a copy of a drawable already counted, not another build
+        TextDrawable copy = new TextDrawable(style, text, color, textColor, ownsBorderPaint ? null : borderPaint,
+                false);
+        if (checkMark) {
+            copy.flipToCheckMark(color, 0);
+        }
+        return copy.rasterize(width, height);
+    }
+
+    private Bitmap rasterize(int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        setBounds(0, 0, width, height);
+        // drawn once, recording a picture first would only add to the cost
+        draw(new Canvas(bitmap), false);
+        return bitmap;
+    }
+
+    /**
+     * Cross-fades from the current color and text to the given ones in {@code duration}
+     * ms. Nothing but the fading colors is computed per frame.
+     */
+    public void crossFadeTo(CharSequence text, int color, long duration) {
+        startTransition(TRANSITION_FADE, duration);
+        showText(text, color);
+    }
+
+    /**
+     * Flips around the vertical axis to the given text and color in {@code duration} ms.
+     */
+    public void flipTo(CharSequence text, int color, long duration) {
+        startTransition(TRANSITION_FLIP, duration);
+        showText(text, color);
+    }
+
+    private void showText(CharSequence text, int color) {
+        checkMark = false;
+        setText(text);
+        setColor(color);
+        pictureValid = false;
+        invalidateSelf();
+    }
+
+    /**
+     * Flips to a check mark on {@code color} in {@code duration} ms, e.g. when a list item
+     * is selected. {@link #flipTo(CharSequence, int, long)} flips back to a text.
+     */
+    public void flipToCheckMark(int color, long duration) {
+        startTransition(TRANSITION_FLIP, duration);
+        checkMark = true;
+        if (checkPath == null) {
+            checkPath = new Path();
+            checkPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            checkPaint.setStyle(Paint.Style.STROKE);
+            checkPaint.setStrokeCap(Paint.Cap.ROUND);
+            checkPaint.setStrokeJoin(Paint.Join.ROUND);
+            updateLayout(getBounds());
+        }
+        setColor(color);
+        pictureValid = false;
+        invalidateSelf();
+    }
+
+    /**
+     * @return whether the drawable shows a check mark instead of its text
+     */
+    public boolean isShowingCheckMark() {
+        return checkMark;
+    }
+
+    /**
+     * @return whether a transition is running
+     */
+    public boolean isAnimating() {
+        return transition != TRANSITION_NONE;
+    }
+
+    /**
+     * Remembers the current face as the one to animate from. A transition interrupting
+     * another one starts from the face the other one was heading to.
+     */
+    private void startTransition(int type, long duration) {
+        if (duration <= 0) {
+            transition = TRANSITION_NONE;
+            fromText = null;
+            return;
+        }
+        transition = type;
+        transitionStart = SystemClock.uptimeMillis();
+        transitionDuration = duration;
+        fromText = text;
+        fromColor = color;
+        fromCheckMark = checkMark;
+        if (transitionTextPaint == null) {
+            transitionTextPaint = new Paint();
+            transitionBorderPaint = new Paint();
+            transitionBorderPaint.setStyle(Paint.Style.STROKE);
+        }
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        super.onBoundsChange(bounds);
+        updateLayout(bounds);
+    }
+
+    /**
+     * Computes the font size, text baseline and border rect for the given bounds so that
+     * {@link #draw(Canvas)} does not have to measure or allocate anything.
+     */
+    private void updateLayout(Rect bounds) {
+        pictureValid = false;
+        int width = style.width < 0 ? bounds.width() : style.width;
+        int height = style.height < 0 ? bounds.height() : style.height;
+        int fontSize = style.fontSize < 0 ? (Math.min(width, height) / 2) : style.fontSize;
+        if (style.fitText && fontSize > 0 && text.length() > 0) {
+            fontSize = fitFontSize(width, height, fontSize);
+        }
+        textSize = fontSize;
+        if (ownsTextPaint) {
+            textPaint.setTextSize(fontSize);
+        }
+        else {
+            textPaint = style.getTextPaint(textColor, fontSize);
+        }
+        float ascent;
+        float descent;
+        if (style.textMetricsCache != null) {
+            TextMetricsCache.FontMetrics measured = style.textMetricsCache.getFontMetrics(textPaint);
+            ascent = measured.ascent;
+            descent = measured.descent;
+        }
+        else {
+            ascent = textPaint.ascent();
+            descent = textPaint.descent();
+        }
+        textX = bounds.left + width / 2;
+        textY = bounds.top + height / 2 - ((descent + ascent) / 2);
+
+        borderRect.set(bounds);
+        borderRect.inset(style.borderThickness/2, style.borderThickness/2);
+
+        if (style.glyphCache != null && fontSize > 0) {
+            layoutGlyphs();
+        }
+        else {
+            glyphCount = 0;
+        }
+
+        if (checkPath != null) {
+            layoutCheckMark(bounds.left, bounds.top, width, height);
+        }
+    }
+
+    private void layoutCheckMark(int left, int top, int width, int height) {
+        checkPath.reset();
+        checkPath.moveTo(left + 0.27f * width, top + 0.52f * height);
+        checkPath.lineTo(left + 0.43f * width, top + 0.67f * height);
+        checkPath.lineTo(left + 0.73f * width, top + 0.36f * height);
+        checkPaint.setStrokeWidth(Math.min(width, height) * 0.08f);
+    }
+
+    /**
+     * Returns the largest font size up to {@code maxSize} at which the text fits inside
+     * the border, or inside the square inscribed in an oval, from the metrics of the text
+     * at {@link #FIT_REFERENCE_SIZE}.
+     */
+    private int fitFontSize(int width, int height, int maxSize) {
+        TextMetricsCache cache = style.metricsCache();
+        Paint reference = style.getTextPaint(style.textColor, FIT_REFERENCE_SIZE);
+        TextMetricsCache.FontMetrics font = cache.getFontMetrics(reference);
+        float advance = cache.getAdvance(text, reference);
+        float boxWidth = width - 2 * style.borderThickness;
+        float boxHeight = height - 2 * style.borderThickness;
+        if (style.shape instanceof OvalShape) {
+            boxWidth *= INSCRIBED_SQUARE;
+            boxHeight *= INSCRIBED_SQUARE;
+        }
+        float scale = FIT_FILL * Math.min(boxWidth / advance,
+                boxHeight / (font.descent - font.ascent));
+        int size = (int) (FIT_REFERENCE_SIZE * scale);
+        return Math.max(1, Math.min(maxSize, size));
+    }
+
+    /**
+     * Looks up the cached glyphs of short texts and positions them so that they line up
+     * with what drawText would have drawn. Only texts that drawText would not shape are
+     * drawn from glyphs, everything else, emoji included, keeps drawText.
+     */
+    private void layoutGlyphs() {
+        int count = text.length();
+        if (count == 0 || count > MAX_CACHED_GLYPHS || !isUnshaped(text)) {
+            glyphCount = 0;
+            return;
+        }
+        if (glyphs == null) {
+            glyphs = new GlyphCache.Glyph[MAX_CACHED_GLYPHS];
+            glyphX = new float[MAX_CACHED_GLYPHS];
+            glyphY = new float[MAX_CACHED_GLYPHS];
+        }
+
+        float advance = 0;
+        for (int i = 0; i < count; i++) {
+            glyphs[i] = style.glyphCache.get(text.charAt(i), textPaint);
+            advance += glyphs[i].advance;
+        }
+
+        // text is center aligned around textX, glyphs are drawn from their pen position
+        float penX = textX - advance / 2;
+        int baseline = Math.round(textY);
+        for (int i = 0; i < count; i++) {
+            glyphX[i] = Math.round(penX) + glyphs[i].left;
+            glyphY[i] = baseline + glyphs[i].top;
+            penX += glyphs[i].advance;
+        }
+        glyphCount = count;
+    }
+
+    /**
+     * @return whether every character of {@code text} is a left to right letter or digit
+     *         of the basic multilingual plane. Color emoji, emoji and flag sequences,
+     *         combining marks and right to left or joining scripts need the shaping of
+     *         drawText and cannot be drawn from single alpha masks.
+     */
+    private static boolean isUnshaped(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            // false for surrogates, so also for everything outside the BMP
+            if (!Character.isLetterOrDigit(c)) {
+                return false;
+            }
+            byte direction = Character.getDirectionality(c);
+            if (direction != Character.DIRECTIONALITY_LEFT_TO_RIGHT
+                    && direction != Character.DIRECTIONALITY_EUROPEAN_NUMBER) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The shared text paint must never be modified, take a private copy before doing so.
+     */
+    private Paint mutableTextPaint() {
+        if (!ownsTextPaint) {
+            textPaint = new Paint(textPaint);
+            ownsTextPaint = true;
+        }
+        return textPaint;
     }
 
     @Override
     public void draw(Canvas canvas) {
-        super.draw(canvas);
-        Rect r = getBounds();
+        draw(canvas, style.recordDisplayList && isSoftware(canvas));
+    }
 
+    private void draw(Canvas canvas, boolean replay) {
+        Metrics metrics = metered ? style.metrics : null;
+        if (metrics == null) {
+            drawTile(canvas, replay);
+            return;
+        }
+        long start = System.nanoTime();
+        drawTile(canvas, replay);
+        metrics.onDraw(this, System.nanoTime() - start);
+    }
 
-        // draw border
-        if (borderThickness > 0) {
-            drawBorder(canvas);
+    private void drawTile(Canvas canvas, boolean replay) {
+        if (transition != TRANSITION_NONE && drawTransition(canvas)) {
+            return;
+        }
+        if (replay) {
+            if (!pictureValid) {
+                if (picture == null) {
+                    picture = new Picture();
+                }
+                Rect bounds = getBounds();
+                Canvas recording = picture.beginRecording(bounds.right, bounds.bottom);
+                drawContent(recording);
+                picture.endRecording();
+                pictureValid = true;
+            }
+            canvas.drawPicture(picture);
         }
+        else {
+            drawContent(canvas);
+        }
+    }
+
+    /**
+     * A hardware accelerated canvas records a display list of its own, replaying a
+     * picture into it would only copy every command again.
+     */
+    private static boolean isSoftware(Canvas canvas) {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB
+                || !canvas.isHardwareAccelerated();
+    }
 
-        int count = canvas.save();
-        canvas.translate(r.left, r.top);
+    private void drawContent(Canvas canvas) {
+        super.draw(canvas);
+
+        // draw border
+        if (borderPaint != null) {
+            drawBorder(canvas, borderPaint);
+        }
 
         // draw text
-        int width = this.width < 0 ? r.width() : this.width;
-        int height = this.height < 0 ? r.height() : this.height;
-        int fontSize = this.fontSize < 0 ? (Math.min(width, height) / 2) : this.fontSize;
-        textPaint.setTextSize(fontSize);
-        canvas.drawText(text, width / 2, height / 2 - ((textPaint.descent() + textPaint.ascent()) / 2), textPaint);
+        if (checkMark) {
+            drawCheckMark(canvas, textColor, textPaint.getAlpha());
+        }
+        else if (glyphCount > 0) {
+            drawGlyphs(canvas);
+        }
+        else {
+            canvas.drawText(text, textX, textY, textPaint);
+        }
+    }
+
+    /**
+     * Draws the current frame of the running transition, invalidating until it is over.
+     *
+     * @return false if the transition is over and the tile has to be drawn as usual
+     */
+    private boolean drawTransition(Canvas canvas) {
+        float fraction = (SystemClock.uptimeMillis() - transitionStart) / (float) transitionDuration;
+        if (fraction >= 1) {
+            transition = TRANSITION_NONE;
+            fromText = null;
+            return false;
+        }
+
+        int alpha = textPaint.getAlpha();
+        if (transition == TRANSITION_FADE) {
+            drawShape(canvas, blend(fromColor, color, fraction));
+            int fromAlpha = (int) (alpha * (1 - fraction));
+            drawFace(canvas, fromText, fromCheckMark, style.textColorFor(fromColor), fromAlpha);
+            drawFace(canvas, text, checkMark, textColor, alpha - fromAlpha);
+        }
+        else {
+            // the old face folds in until edge on, then the new one unfolds
+            boolean second = fraction >= 0.5f;
+            Rect bounds = getBounds();
+            int saveCount = canvas.save();
+            canvas.scale(Math.abs(1 - 2 * fraction), 1, bounds.exactCenterX(), bounds.exactCenterY());
+            if (second) {
+                drawShape(canvas, color);
+                drawFace(canvas, text, checkMark, textColor, alpha);
+            }
+            else {
+                drawShape(canvas, fromColor);
+                drawFace(canvas, fromText, fromCheckMark, style.textColorFor(fromColor), alpha);
+            }
+            canvas.restoreToCount(saveCount);
+        }
+        invalidateSelf();
+        return true;
+    }
 
-        canvas.restoreToCount(count);
+    private void drawShape(Canvas canvas, int fillColor) {
+        Paint paint = getPaint();
+        paint.setColor(fillColor);
+        super.draw(canvas);
+        paint.setColor(color);
 
+        if (borderPaint != null) {
+            transitionBorderPaint.setStrokeWidth(style.borderThickness);
+            transitionBorderPaint.setColor(ColorGenerator.getDarkerShade(fillColor));
+            drawBorder(canvas, transitionBorderPaint);
+        }
     }
 
-    private void drawBorder(Canvas canvas) {
-        RectF rect = new RectF(getBounds());
-        rect.inset(borderThickness/2, borderThickness/2);
+    private void drawFace(Canvas canvas, String text, boolean checkMark, int textColor, int alpha) {
+        if (checkMark) {
+            drawCheckMark(canvas, textColor, alpha);
+            return;
+        }
+        Paint paint = transitionTextPaint;
+        paint.set(textPaint);
+        paint.setColor(textColor);
+        paint.setAlpha(alpha);
+        canvas.drawText(text, textX, textY, paint);
+    }
+
+    private void drawCheckMark(Canvas canvas, int color, int alpha) {
+        checkPaint.setColor(color);
+        checkPaint.setAlpha(alpha);
+        canvas.drawPath(checkPath, checkPaint);
+    }
+
+    /**
+     * Interpolates each ARGB channel.
+     */
+    private static int blend(int from, int to, float fraction) {
+        int a = (from >>> 24) + (int) (((to >>> 24) - (from >>> 24)) * fraction);
+        int r = ((from >> 16) & 0xff) + (int) ((((to >> 16) & 0xff) - ((from >> 16) & 0xff)) * fraction);
+        int g = ((from >> 8) & 0xff) + (int) ((((to >> 8) & 0xff) - ((from >> 8) & 0xff)) * fraction);
+        int b = (from & 0xff) + (int) (((to & 0xff) - (from & 0xff)) * fraction);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    private void drawGlyphs(Canvas canvas) {
+        for (int i = 0; i < glyphCount; i++) {
+            Bitmap mask = glyphs[i].mask;
+            if (mask != null) {
+                // alpha masks are drawn in the color of the paint
+                canvas.drawBitmap(mask, glyphX[i], glyphY[i], textPaint);
+            }
+        }
+    }
 
+    private void drawBorder(Canvas canvas, Paint paint) {
+        RectShape shape = style.shape;
         if (shape instanceof OvalShape) {
-            canvas.drawOval(rect, borderPaint);
+            canvas.drawOval(borderRect, paint);
         }
         else if (shape instanceof RoundRectShape) {
-            canvas.drawRoundRect(rect, radius, radius, borderPaint);
+            canvas.drawRoundRect(borderRect, style.radius, style.radius, paint);
         }
         else {
-            canvas.drawRect(rect, borderPaint);
+            canvas.drawRect(borderRect, paint);
         }
     }
 
     @Override
     public void setAlpha(int alpha) {
-        textPaint.setAlpha(alpha);
+        mutableTextPaint().setAlpha(alpha);
+        pictureValid = false;
     }
 
     @Override
     public void setColorFilter(ColorFilter cf) {
-        textPaint.setColorFilter(cf);
+        mutableTextPaint().setColorFilter(cf);
+        pictureValid = false;
+    }
+
+    /**
+     * @return the alpha set with {@link #setAlpha(int)}, 255 if none was set
+     */
+    @Override
+    public int getAlpha() {
+        return ownsTextPaint ? textPaint.getAlpha() : 0xff;
+    }
+
+    /**
+     * @return the color filter set with {@link #setColorFilter(ColorFilter)}, or null
+     */
+    @Override
+    public ColorFilter getColorFilter() {
+        return ownsTextPaint ? textPaint.getColorFilter() : null;
     }
 
     @Override
@@ -124,23 +722,354 @@ public class TextDrawable extends ShapeDrawable {
 
     @Override
     public int getIntrinsicWidth() {
-        return width;
+        return style.width;
     }
 
     @Override
     public int getIntrinsicHeight() {
-        return height;
+        return style.height;
+    }
+
+    public Style getStyle() {
+        return style;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public int getTextColor() {
+        return textColor;
+    }
+
+    public Typeface getFont() {
+        return style.font;
+    }
+
+    public boolean isBold() {
+        return style.isBold;
+    }
+
+    public int getFontSize() {
+        return style.fontSize;
+    }
+
+    public float getRadius() {
+        return style.radius;
+    }
+
+    public int getBorderThickness() {
+        return style.borderThickness;
     }
 
     public static IShapeBuilder builder() {
         return new Builder();
     }
 
-    public static class Builder implements IConfigBuilder, IShapeBuilder, IBuilder {
+    /**
+     * Renders a batch of tiles into bitmaps on the given executor, one task per text, so
+     * that binding them later is only a bitmap swap. The style must specify a width and
+     * height; colors are picked from {@code generator} by text.
+     *
+     * @return a future holding the bitmaps in the order of {@code texts}
+     */
+    public static Future<List<Bitmap>> prerender(List<String> texts, ColorGenerator generator,
+                                                 Style style, Executor executor) {
+        if (style.width <= 0 || style.height <= 0) {
+            throw new IllegalArgumentException("style has no width/height, specify the size to render at");
+        }
+        return prerender(texts, generator, style, style.width, style.height, executor);
+    }
+
+    /**
+     * Same as {@link #prerender(List, ColorGenerator, Style, Executor)}, rendering each tile
+     * at {@code width} x {@code height} px.
+     */
+    public static Future<List<Bitmap>> prerender(List<String> texts, ColorGenerator generator,
+                                                 Style style, int width, int height, Executor executor) {
+        PrerenderBatch batch = new PrerenderBatch(texts, generator, style, width, height);
+        batch.start(executor);
+        return batch;
+    }
+
+    /**
+     * Immutable configuration shared by any number of drawables. The text paints are
+     * created once per style, so building a drawable from a style only captures its text
+     * and color, and a copy of the shape which the drawable resizes to its own bounds.
+     *
+     * <pre>
+     * TextDrawable.Style style = TextDrawable.builder()
+     *         .beginConfig()
+     *             .withBorder(4)
+     *         .endConfig()
+     *         .round()
+     *         .style();
+     *
+     * TextDrawable ic1 = style.build("A", color1);
+     * TextDrawable ic2 = style.build("B", color2);
+     * </pre>
+     */
+    public static final class Style implements IBuilder {
+
+        private final RectShape shape;
+        private final float radius;
+        private final int width;
+        private final int height;
+        private final int borderThickness;
+        private final Typeface font;
+        private final int fontSize;
+        private final int textColor;
+        private final boolean isBold;
+        private final boolean toUpperCase;
+        private final GlyphCache glyphCache;
+        private final Metrics metrics;
+        private final boolean recordDisplayList;
+        private final boolean autoTextColor;
+        private final boolean fitText;
+        private final TextMetricsCache textMetricsCache;
+        private final Paint textPaint;
+        // text color -> text size -> paint
+        private final SparseArray<SparseArray<Paint>> sizedTextPaints;
+        private HashMap<ColorGenerator, Paint[]> borderPaints;
+
+        private Style(Builder builder) {
+            shape = builder.shape;
+            radius = builder.radius;
+            width = builder.width;
+            height = builder.height;
+            borderThickness = builder.borderThickness;
+            font = builder.font;
+            fontSize = builder.fontSize;
+            textColor = builder.textColor;
+            isBold = builder.isBold;
+            toUpperCase = builder.toUpperCase;
+            glyphCache = builder.glyphCache;
+            metrics = builder.metrics;
+            recordDisplayList = builder.recordDisplayList;
+            autoTextColor = builder.autoTextColor;
+            fitText = builder.fitText;
+            textMetricsCache = builder.textMetricsCache;
+
+            // text paint settings
+            textPaint = new Paint();
+            textPaint.setColor(textColor);
+            textPaint.setAntiAlias(true);
+            textPaint.setFakeBoldText(isBold);
+            textPaint.setStyle(Paint.Style.FILL);
+            textPaint.setTypeface(font);
+            textPaint.setTextAlign(Paint.Align.CENTER);
+            textPaint.setStrokeWidth(borderThickness);
+
+            sizedTextPaints = new SparseArray<SparseArray<Paint>>(1);
+        }
+
+        /**
+         * @return a copy of the shape for one drawable, {@link ShapeDrawable} resizes its
+         * shape to its bounds
+         */
+        private RectShape newShape() {
+            try {
+                return shape.clone();
+            } catch (CloneNotSupportedException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        /**
+         * @return a shared, read-only text paint with the given color and text size
+         */
+        synchronized Paint getTextPaint(int color, int size) {
+            SparseArray<Paint> paints = sizedTextPaints.get(color);
+            if (paints == null) {
+                paints = new SparseArray<Paint>(1);
+                sizedTextPaints.put(color, paints);
+            }
+            Paint paint = paints.get(size);
+            if (paint == null) {
+                paint = new Paint(textPaint);
+                paint.setColor(color);
+                paint.setTextSize(size);
+                paints.put(size, paint);
+            }
+            return paint;
+        }
+
+        /**
+         * @return the cache measuring texts to fit, the shared one if none was configured
+         */
+        private TextMetricsCache metricsCache() {
+            return textMetricsCache != null ? textMetricsCache : TextMetricsCache.getDefault();
+        }
+
+        int textColorFor(int color) {
+            return autoTextColor ? ColorGenerator.getContrastColor(color) : textColor;
+        }
+
+        private int textColorFor(ColorGenerator palette, int index) {
+            return autoTextColor ? palette.getContrastColorAt(index) : textColor;
+        }
+
+        @Override
+        public TextDrawable build(String text, int color) {
+            return new TextDrawable(this, text, color, textColorFor(color), null, true);
+        }
+
+        /**
+         * Same as {@link #build(String, int)} for a drawable that only renders tiles into
+         * bitmaps owned by a cache, e.g. the one {@link com.amulyakhare.textdrawable.cache.AvatarAtlas}
+         * re-targets for every tile it packs. Its builds and draws are not reported to
+         * the style's {@link Metrics}, which counts the drawables that are shown.
+         */
+        public TextDrawable buildPainter(String text, int color) {
+            return new TextDrawable(this, text, color, textColorFor(color), null, false);
+        }
+
+        /**
+         * Renders {@code text} on {@code color} into a new ARGB_8888 bitmap of the given
+         * size. The drawable is built for the call only, so it can be made from any thread.
+         */
+        public Bitmap render(String text, int color, int width, int height) {
+            return build(text, color).rasterize(width, height);
+        }
+
+        /**
+         * Same as {@link #render(String, int, int, int)} with the color at {@code index} of
+         * {@code palette}.
+         */
+        public Bitmap render(String text, ColorGenerator palette, int index, int width, int height) {
+            return build(text, palette, index).rasterize(width, height);
+        }
+
+        @Override
+        public TextDrawable build(String text, ColorGenerator palette, int index) {
+            Paint border = borderThickness > 0 ? getBorderPaint(palette, index) : null;
+            return new TextDrawable(this, text, palette.getColorAt(index), textColorFor(palette, index), border,
+                    true);
+        }
+
+        /**
+         * Builds a tile split into one segment per text, 2 to 4 of them, see
+         * {@link GroupTextDrawable}.
+         */
+        public GroupTextDrawable buildGroup(String[] texts, int[] colors) {
+            return new GroupTextDrawable(this, texts, colors);
+        }
+
+        /**
+         * Same as {@link #buildGroup(String[], int[])} with the color {@code palette} picks
+         * for each text.
+         */
+        public GroupTextDrawable buildGroup(String[] texts, ColorGenerator palette) {
+            int[] colors = new int[texts.length];
+            for (int i = 0; i < texts.length; i++) {
+                colors[i] = palette.getColor(texts[i]);
+            }
+            return new GroupTextDrawable(this, texts, colors);
+        }
+
+        /**
+         * @return a shared, read-only border paint for the color at {@code index} of
+         * {@code palette}
+         */
+        private synchronized Paint getBorderPaint(ColorGenerator palette, int index) {
+            if (borderPaints == null) {
+                borderPaints = new HashMap<ColorGenerator, Paint[]>(2);
+            }
+            Paint[] paints = borderPaints.get(palette);
+            if (paints == null) {
+                paints = new Paint[palette.size()];
+                borderPaints.put(palette, paints);
+            }
+            Paint paint = paints[index];
+            if (paint == null) {
+                paint = new Paint();
+                paint.setStyle(Paint.Style.STROKE);
+                paint.setStrokeWidth(borderThickness);
+                paint.setColor(palette.getDarkerShadeAt(index));
+                paints[index] = paint;
+            }
+            return paint;
+        }
+
+        @Override
+        public Style style() {
+            return this;
+        }
+
+        public RectShape getShape() {
+            return shape;
+        }
+
+        public float getRadius() {
+            return radius;
+        }
 
-        private String text;
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getBorderThickness() {
+            return borderThickness;
+        }
+
+        public Typeface getFont() {
+            return font;
+        }
+
+        public int getFontSize() {
+            return fontSize;
+        }
+
+        /**
+         * @return the configured text color, drawables of an {@link #isAutoTextColor()}
+         * style pick their own
+         */
+        public int getTextColor() {
+            return textColor;
+        }
+
+        public boolean isAutoTextColor() {
+            return autoTextColor;
+        }
+
+        public boolean isBold() {
+            return isBold;
+        }
+
+        public boolean isUpperCase() {
+            return toUpperCase;
+        }
 
-        private int color;
+        public GlyphCache getGlyphCache() {
+            return glyphCache;
+        }
+
+        public Metrics getMetrics() {
+            return metrics;
+        }
+
+        public boolean isRecordingDisplayList() {
+            return recordDisplayList;
+        }
+
+        public boolean isFittingText() {
+            return fitText;
+        }
+
+        public TextMetricsCache getTextMetricsCache() {
+            return textMetricsCache;
+        }
+    }
+
+    public static class Builder implements IConfigBuilder, IShapeBuilder, IBuilder {
 
         private int borderThickness;
 
@@ -162,15 +1091,28 @@ public class TextDrawable extends ShapeDrawable {
 
         public float radius;
 
+        private GlyphCache glyphCache;
+
+        private Metrics metrics;
+
+        private boolean recordDisplayList;
+
+        private boolean autoTextColor;
+
+        private boolean fitText;
+
+        private TextMetricsCache textMetricsCache;
+
+        // style of the current configuration, reset whenever the configuration changes
+        private Style style;
+
         private Builder() {
-            text = "";
-            color = Color.GRAY;
             textColor = Color.WHITE;
             borderThickness = 0;
             width = -1;
             height = -1;
             shape = new RectShape();
-            font = Typeface.create("sans-serif-light", Typeface.NORMAL);
+            font = TypefaceRegistry.get("sans-serif-light", Typeface.NORMAL);
             fontSize = -1;
             isBold = false;
             toUpperCase = false;
@@ -178,41 +1120,90 @@ public class TextDrawable extends ShapeDrawable {
 
         public IConfigBuilder width(int width) {
             this.width = width;
+            style = null;
             return this;
         }
 
         public IConfigBuilder height(int height) {
             this.height = height;
+            style = null;
             return this;
         }
 
         public IConfigBuilder textColor(int color) {
             this.textColor = color;
+            this.autoTextColor = false;
+            style = null;
+            return this;
+        }
+
+        public IConfigBuilder autoTextColor() {
+            this.autoTextColor = true;
+            style = null;
             return this;
         }
 
         public IConfigBuilder withBorder(int thickness) {
             this.borderThickness = thickness;
+            style = null;
             return this;
         }
 
         public IConfigBuilder useFont(Typeface font) {
             this.font = font;
+            style = null;
             return this;
         }
 
+        public IConfigBuilder useFont(String family, int style) {
+            return useFont(TypefaceRegistry.get(family, style));
+        }
+
         public IConfigBuilder fontSize(int size) {
             this.fontSize = size;
+            style = null;
             return this;
         }
 
         public IConfigBuilder bold() {
             this.isBold = true;
+            style = null;
             return this;
         }
 
         public IConfigBuilder toUpperCase() {
             this.toUpperCase = true;
+            style = null;
+            return this;
+        }
+
+        public IConfigBuilder useGlyphCache(GlyphCache cache) {
+            this.glyphCache = cache;
+            style = null;
+            return this;
+        }
+
+        public IConfigBuilder metrics(Metrics metrics) {
+            this.metrics = metrics;
+            style = null;
+            return this;
+        }
+
+        public IConfigBuilder useTextMetricsCache(TextMetricsCache cache) {
+            this.textMetricsCache = cache;
+            style = null;
+            return this;
+        }
+
+        public IConfigBuilder fitText() {
+            this.fitText = true;
+            style = null;
+            return this;
+        }
+
+        public IConfigBuilder recordDisplayList() {
+            this.recordDisplayList = true;
+            style = null;
             return this;
         }
 
@@ -228,21 +1219,30 @@ public class TextDrawable extends ShapeDrawable {
 
         @Override
         public IBuilder rect() {
-            this.shape = new RectShape();
+            if (shape.getClass() != RectShape.class) {
+                this.shape = new RectShape();
+                style = null;
+            }
             return this;
         }
 
         @Override
         public IBuilder round() {
-            this.shape = new OvalShape();
+            if (!(shape instanceof OvalShape)) {
+                this.shape = new OvalShape();
+                style = null;
+            }
             return this;
         }
 
         @Override
         public IBuilder roundRect(int radius) {
-            this.radius = radius;
-            float[] radii = {radius, radius, radius, radius, radius, radius, radius, radius};
-            this.shape = new RoundRectShape(radii, null, null);
+            if (!(shape instanceof RoundRectShape) || this.radius != radius) {
+                this.radius = radius;
+                float[] radii = {radius, radius, radius, radius, radius, radius, radius, radius};
+                this.shape = new RoundRectShape(radii, null, null);
+                style = null;
+            }
             return this;
         }
 
@@ -266,9 +1266,20 @@ public class TextDrawable extends ShapeDrawable {
 
         @Override
         public TextDrawable build(String text, int color) {
-            this.color = color;
-            this.text = text;
-            return new TextDrawable(this);
+            return style().build(text, color);
+        }
+
+        @Override
+        public TextDrawable build(String text, ColorGenerator palette, int index) {
+            return style().build(text, palette, index);
+        }
+
+        @Override
+        public Style style() {
+            if (style == null) {
+                style = new Style(this);
+            }
+            return style;
         }
     }
 
@@ -279,22 +1290,108 @@ public class TextDrawable extends ShapeDrawable {
 
         public IConfigBuilder textColor(int color);
 
+        /**
+         * Pick white or dark text for each tile color, whichever is readable on it, see
+         * {@link ColorGenerator#getContrastColor(int)}. The choice is made when the color
+         * is set, looked up from the palette's precomputed table for palette indices.
+         */
+        public IConfigBuilder autoTextColor();
+
         public IConfigBuilder withBorder(int thickness);
 
         public IConfigBuilder useFont(Typeface font);
 
+        /**
+         * Use the font of the given family and style, resolved through {@link TypefaceRegistry}.
+         */
+        public IConfigBuilder useFont(String family, int style);
+
         public IConfigBuilder fontSize(int size);
 
         public IConfigBuilder bold();
 
         public IConfigBuilder toUpperCase();
 
+        /**
+         * Draw texts of one or two letters or digits from pre-rendered glyph masks instead
+         * of laying out the text on every draw. Emoji, combining marks and right to left
+         * scripts are still drawn with drawText.
+         */
+        public IConfigBuilder useGlyphCache(GlyphCache cache);
+
+        /**
+         * Report builds and draw timings of the drawables to {@code metrics}.
+         */
+        public IConfigBuilder metrics(Metrics metrics);
+
+        /**
+         * Take the font metrics used to lay out the text from {@code cache} instead of
+         * measuring them for every drawable.
+         */
+        public IConfigBuilder useTextMetricsCache(TextMetricsCache cache);
+
+        /**
+         * Shrink the font size of texts that would not fit the bounds, e.g. longer texts
+         * than one or two letters. The font size, or half the smaller side by default, is
+         * the largest size used.
+         */
+        public IConfigBuilder fitText();
+
+        /**
+         * Record the shape, border and text into a {@link Picture} once per bounds change
+         * and replay it when drawn into a software canvas, e.g. when the same drawable is
+         * drawn into bitmaps or software layers again and again. Hardware accelerated
+         * canvases are drawn into directly, they already record the drawable into a
+         * display list of their own and only re-record it when it is invalidated. The
+         * picture is only allocated once the drawable is drawn into a software canvas.
+         */
+        public IConfigBuilder recordDisplayList();
+
         public IShapeBuilder endConfig();
     }
 
+    /**
+     * Opt-in instrumentation, see {@link IConfigBuilder#metrics(Metrics)},
+     * {@link com.amulyakhare.textdrawable.cache.TextDrawableCache#setMetrics(Metrics)} and
+     * {@link GlyphCache#setMetrics(Metrics)}. Without a listener nothing is measured.
+     * {@link com.amulyakhare.textdrawable.util.MetricsRecorder} aggregates the callbacks.
+     * The copies drawn by {@link TextDrawable#toBitmap(int, int)} and drawables built with
+     * {@link Style#buildPainter(String, int)} are not reported.
+     */
+    public static interface Metrics {
+
+        public void onBuild(TextDrawable drawable);
+
+        public void onDraw(TextDrawable drawable, long nanos);
+
+        /**
+         * @param cache the cache that was looked up
+         * @param hit whether the cache already held the entry
+         */
+        public void onCacheLookup(Object cache, boolean hit);
+    }
+
+    /**
+     * Implementations outside the library need {@link #build(String, ColorGenerator, int)}
+     * and {@link #style()} since 2.0, both can delegate to a {@link Style}.
+     */
     public static interface IBuilder {
 
         public TextDrawable build(String text, int color);
+
+        /**
+         * Builds a drawable in the color at {@code index} of {@code palette}, e.g.
+         * {@code build(name, palette, palette.getColorIndex(name))}. The border shade is
+         * looked up instead of derived and its paint is shared by every drawable of the
+         * style in that color.
+         */
+        public TextDrawable build(String text, ColorGenerator palette, int index);
+
+        /**
+         * @return an immutable snapshot of the current configuration that can be shared
+         * between any number of drawables
+         */
+        public Style style();
     }
 
     public static interface IShapeBuilder {
@@ -313,4 +1410,4 @@ public class TextDrawable extends ShapeDrawable {
 
         public TextDrawable buildRound(String text, int color);
     }
-}
\ No newline at end of file
+}
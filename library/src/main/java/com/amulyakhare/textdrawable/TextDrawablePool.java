@@ -0,0 +1,251 @@
+package com.amulyakhare.textdrawable;
+
+import android.util.Log;
+
+import com.amulyakhare.textdrawable.util.ColorGenerator;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.WeakHashMap;
+
+/**
+ * Bounded pool of drawables of one style, for screens that bind and drop drawables at a
+ * high rate (e.g. search results re-bound on every keystroke). {@link #build(String, int)}
+ * re-targets a released drawable when there is one instead of allocating a new one.
+ *
+ * <pre>
+ * TextDrawablePool pool = new TextDrawablePool(builder.style(), 32);
+ * pool.setLeakDetection(BuildConfig.DEBUG);
+ *
+ * // bind
+ * holder.drawable = pool.build(initials, color);
+ * holder.imageView.setImageDrawable(holder.drawable);
+ *
+ * // recycle
+ * holder.imageView.setImageDrawable(null);
+ * pool.release(holder.drawable);
+ * </pre>
+ *
+ * A pool is confined to the thread that created it, usually the main thread, and is not
+ * synchronized. A released drawable must no longer be used or attached to a view.
+ */
+public class TextDrawablePool implements TextDrawable.IBuilder {
+
+    private static final String TAG = "TextDrawablePool";
+
+    private final TextDrawable.Style style;
+    private final int maxSize;
+    private final ArrayList<TextDrawable> free;
+    private final Thread owner;
+
+    private int hitCount;
+    private int missCount;
+    private int leakCount;
+
+    // outstanding drawables, only tracked while leak detection is enabled
+    private ReferenceQueue<TextDrawable> queue;
+    private WeakHashMap<TextDrawable, Lease> leases;
+    private HashSet<Lease> outstanding;
+
+    /**
+     * @param maxSize maximum number of released drawables kept for reuse
+     */
+    public TextDrawablePool(TextDrawable.Style style, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.style = style;
+        this.maxSize = maxSize;
+        free = new ArrayList<TextDrawable>(maxSize);
+        owner = Thread.currentThread();
+    }
+
+    /**
+     * Returns a drawable showing {@code text} in {@code color}, reusing a released drawable
+     * if there is one.
+     */
+    @Override
+    public TextDrawable build(String text, int color) {
+        TextDrawable drawable = obtain();
+        if (drawable != null) {
+            drawable.setText(text);
+            drawable.setColor(color);
+            return drawable;
+        }
+        return track(style.build(text, color));
+    }
+
+    @Override
+    public TextDrawable build(String text, ColorGenerator palette, int index) {
+        TextDrawable drawable = obtain();
+        if (drawable != null) {
+            drawable.setText(text);
+            drawable.setColor(palette, index);
+            return drawable;
+        }
+        return track(style.build(text, palette, index));
+    }
+
+    /**
+     * @return a released drawable to re-target, or null if the pool is empty
+     */
+    private TextDrawable obtain() {
+        checkThread();
+        pollLeaks();
+
+        TextDrawable drawable = null;
+        int count = free.size();
+        if (count > 0) {
+            hitCount++;
+            drawable = free.remove(count - 1);
+            drawable.pooled = false;
+            track(drawable);
+        }
+        else {
+            missCount++;
+        }
+        if (style.getMetrics() != null) {
+            style.getMetrics().onCacheLookup(this, count > 0);
+        }
+        return drawable;
+    }
+
+    private TextDrawable track(TextDrawable drawable) {
+        if (leases != null) {
+            Lease lease = new Lease(drawable, queue);
+            leases.put(drawable, lease);
+            outstanding.add(lease);
+        }
+        return drawable;
+    }
+
+    /**
+     * Hands {@code drawable} back for reuse. Drawables beyond the pool size are left to
+     * the garbage collector.
+     *
+     * @throws IllegalArgumentException if the drawable is of another style
+     * @throws IllegalStateException if the drawable was already released
+     */
+    public void release(TextDrawable drawable) {
+        checkThread();
+        if (drawable.getStyle() != style) {
+            throw new IllegalArgumentException("drawable is not of this pool's style");
+        }
+        if (drawable.pooled) {
+            throw new IllegalStateException("drawable released twice");
+        }
+        if (leases != null) {
+            Lease lease = leases.remove(drawable);
+            if (lease != null) {
+                outstanding.remove(lease);
+                lease.clear();
+            }
+        }
+        pollLeaks();
+
+        if (free.size() < maxSize) {
+            drawable.recycle();
+            drawable.pooled = true;
+            free.add(drawable);
+        }
+    }
+
+    @Override
+    public TextDrawable.Style style() {
+        return style;
+    }
+
+    /**
+     * Logs a warning with the stack trace of the {@link #build(String, int)} call for every
+     * drawable that is garbage collected without having been released. Meant for debug
+     * builds, tracking costs an allocation per build.
+     */
+    public void setLeakDetection(boolean enabled) {
+        checkThread();
+        if (enabled && leases == null) {
+            queue = new ReferenceQueue<TextDrawable>();
+            leases = new WeakHashMap<TextDrawable, Lease>();
+            outstanding = new HashSet<Lease>();
+        }
+        else if (!enabled) {
+            queue = null;
+            leases = null;
+            outstanding = null;
+        }
+    }
+
+    private void pollLeaks() {
+        if (queue == null) {
+            return;
+        }
+        Reference<? extends TextDrawable> reference;
+        while ((reference = queue.poll()) != null) {
+            Lease lease = (Lease) reference;
+            if (outstanding.remove(lease)) {
+                leakCount++;
+                Log.w(TAG, "drawable was never released to the pool", lease.site);
+            }
+        }
+    }
+
+    /**
+     * Drops the drawables waiting to be reused.
+     */
+    public void clear() {
+        checkThread();
+        for (int i = 0, count = free.size(); i < count; i++) {
+            free.get(i).pooled = false;
+        }
+        free.clear();
+    }
+
+    private void checkThread() {
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("pool used off its owner thread " + owner.getName());
+        }
+    }
+
+    public int size() {
+        return free.size();
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public int hitCount() {
+        return hitCount;
+    }
+
+    public int missCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the number of drawables found garbage collected without having been
+     * released, only counted while leak detection is enabled
+     */
+    public int leakCount() {
+        return leakCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TextDrawablePool[size=%d,maxSize=%d,hits=%d,misses=%d,leaks=%d]",
+                free.size(), maxSize, hitCount, missCount, leakCount);
+    }
+
+    private static final class Lease extends WeakReference<TextDrawable> {
+
+        // where the drawable was obtained, reported if it leaks
+        private final Throwable site;
+
+        private Lease(TextDrawable drawable, ReferenceQueue<TextDrawable> queue) {
+            super(drawable, queue);
+            site = new Throwable("obtained here");
+        }
+    }
+}
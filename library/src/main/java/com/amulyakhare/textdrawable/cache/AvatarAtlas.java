@@ -0,0 +1,203 @@
+package com.amulyakhare.textdrawable.cache;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+import com.amulyakhare.textdrawable.TextDrawable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Packs the tiles of one style into a few large page bitmaps instead of one bitmap per
+ * tile. The drawables returned by {@link #get(String, int)} draw their region of a page,
+ * which keeps the bitmap count (and texture uploads with hardware acceleration) low for
+ * grids showing hundreds of tiles of the same size.
+ *
+ * <pre>
+ * AvatarAtlas atlas = new AvatarAtlas(style, 96, 96);
+ * imageView.setImageDrawable(atlas.get("A", color));
+ * </pre>
+ *
+ * Once every page is full, tiles are no longer packed and plain {@link TextDrawable}s
+ * are returned instead; call {@link #clear()} to start over.
+ */
+public class AvatarAtlas {
+
+    private static final int DEFAULT_PAGE_SIZE = 1024;
+    private static final int DEFAULT_MAX_PAGES = 4;
+
+    // transparent gap between tiles, keeps filtering from bleeding in neighbouring tiles
+    private static final int PADDING = 1;
+
+    private final TextDrawable.Style style;
+    private final int tileWidth;
+    private final int tileHeight;
+    private final int pageSize;
+    private final int maxPages;
+    private final List<Page> pages;
+    private final HashMap<Key, Region> regions;
+    private TextDrawable.Metrics metrics;
+
+    // draws every tile, re-targeted and translated rather than moved to each region
+    private TextDrawable painter;
+
+    public AvatarAtlas(TextDrawable.Style style, int tileWidth, int tileHeight) {
+        this(style, tileWidth, tileHeight, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    /**
+     * @param pageSize width and height of each page bitmap, in px
+     * @param maxPages maximum number of page bitmaps to allocate
+     */
+    public AvatarAtlas(TextDrawable.Style style, int tileWidth, int tileHeight, int pageSize, int maxPages) {
+        if (tileWidth <= 0 || tileHeight <= 0) {
+            throw new IllegalArgumentException("tile size must be positive");
+        }
+        if (tileWidth + PADDING > pageSize || tileHeight + PADDING > pageSize) {
+            throw new IllegalArgumentException("tile does not fit in a page of " + pageSize + "px");
+        }
+        this.style = style;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        pages = new ArrayList<Page>(maxPages);
+        regions = new HashMap<Key, Region>();
+    }
+
+    /**
+     * Returns a drawable for the given text and color, rendering it into a page the
+     * first time it is requested.
+     */
+    public synchronized Drawable get(String text, int color) {
+        Key key = new Key(text, color);
+        Region region = regions.get(key);
+        if (metrics != null) {
+            metrics.onCacheLookup(this, region != null);
+        }
+        if (region == null) {
+            region = pack(text, color);
+            if (region == null) {
+                return style.build(text, color);
+            }
+            regions.put(key, region);
+        }
+        return new BitmapTileDrawable(region.page.bitmap, region.rect);
+    }
+
+    private Region pack(String text, int color) {
+        Rect rect = new Rect();
+        Page page = null;
+        for (int i = 0, count = pages.size(); i < count; i++) {
+            if (pages.get(i).packer.insert(tileWidth + PADDING, tileHeight + PADDING, rect)) {
+                page = pages.get(i);
+                break;
+            }
+        }
+        if (page == null) {
+            if (pages.size() == maxPages) {
+                return null;
+            }
+            page = new Page(pageSize);
+            pages.add(page);
+            page.packer.insert(tileWidth + PADDING, tileHeight + PADDING, rect);
+        }
+        rect.right -= PADDING;
+        rect.bottom -= PADDING;
+
+        if (painter == null) {
+            // packing is not showing a drawable, keep it out of the style's metrics
+            painter = style.buildPainter(text, color);
+            painter.setBounds(0, 0, tileWidth, tileHeight);
+        }
+        else {
+            painter.setText(text);
+            painter.setColor(color);
+        }
+        int saveCount = page.canvas.save();
+        page.canvas.translate(rect.left, rect.top);
+        painter.draw(page.canvas);
+        page.canvas.restoreToCount(saveCount);
+        return new Region(page, rect);
+    }
+
+    /**
+     * Reports every lookup to {@code metrics}, or to nobody if null.
+     */
+    public synchronized void setMetrics(TextDrawable.Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Forgets every packed tile. Drawables handed out earlier keep pointing to the page
+     * bitmaps, so pages are reallocated rather than redrawn in place.
+     */
+    public synchronized void clear() {
+        pages.clear();
+        regions.clear();
+    }
+
+    public synchronized int getPageCount() {
+        return pages.size();
+    }
+
+    public synchronized int getTileCount() {
+        return regions.size();
+    }
+
+    private static final class Page {
+
+        private final Bitmap bitmap;
+        private final Canvas canvas;
+        private final RectPacker packer;
+
+        private Page(int size) {
+            bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+            canvas = new Canvas(bitmap);
+            packer = new RectPacker(size, size);
+        }
+    }
+
+    private static final class Region {
+
+        private final Page page;
+        private final Rect rect;
+
+        private Region(Page page, Rect rect) {
+            this.page = page;
+            this.rect = rect;
+        }
+    }
+
+    private static final class Key {
+
+        private final String text;
+        private final int color;
+
+        private Key(String text, int color) {
+            this.text = text;
+            this.color = color;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return color == key.color && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * text.hashCode() + color;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.amulyakhare.textdrawable.cache;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+/**
+ * Draws a pre-rendered tile (the whole bitmap or a region of it) into its bounds
+ * with a single drawBitmap call.
+ */
+public class BitmapTileDrawable extends Drawable {
+
+    private final Bitmap bitmap;
+    private final Rect src;
+    private final Paint paint;
+
+    public BitmapTileDrawable(Bitmap bitmap) {
+        this(bitmap, null);
+    }
+
+    public BitmapTileDrawable(Bitmap bitmap, Rect src) {
+        this.bitmap = bitmap;
+        this.src = src;
+        paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        canvas.drawBitmap(bitmap, src, getBounds(), paint);
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        paint.setAlpha(alpha);
+        invalidateSelf();
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter cf) {
+        paint.setColorFilter(cf);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return src == null ? bitmap.getWidth() : src.width();
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return src == null ? bitmap.getHeight() : src.height();
+    }
+
+    public Bitmap getBitmap() {
+        return bitmap;
+    }
+}
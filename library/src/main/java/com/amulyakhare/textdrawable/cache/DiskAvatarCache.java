@@ -0,0 +1,462 @@
+package com.amulyakhare.textdrawable.cache;
+
+import android.graphics.Bitmap;
+import android.graphics.Typeface;
+import android.util.Log;
+
+import com.amulyakhare.textdrawable.TextDrawable;
+import com.amulyakhare.textdrawable.util.TypefaceRegistry;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Persistent tier for rendered tiles, so that tiles rendered in an earlier session can be
+ * shown without running the text rasterizer. Tiles are stored as raw pixels in files named
+ * after a SHA-1 of the full drawable configuration and read back through memory mapped
+ * files. Writes happen on a background thread; the least recently used tiles are deleted
+ * once the directory exceeds its byte budget, which is tracked in an append-only journal.
+ *
+ * <pre>
+ * DiskAvatarCache disk = new DiskAvatarCache(new File(context.getCacheDir(), "avatars"), 8 * 1024 * 1024);
+ * Bitmap bitmap = disk.getOrRender(builder.build("A", color), size, size);
+ * </pre>
+ */
+public class DiskAvatarCache {
+
+    private static final String TAG = "DiskAvatarCache";
+    private static final String JOURNAL = "journal";
+    private static final String EXTENSION = ".tile";
+    private static final int MAGIC = 0x54445431; // "TDT1"
+    private static final int HEADER_SIZE = 12;
+
+    // the journal is compacted once it holds this many redundant lines
+    private static final int REDUNDANT_OPS_COMPACT_THRESHOLD = 2000;
+
+    private final File directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Long> entries;
+    private final ExecutorService writer;
+    private long size;
+    private int redundantOps;
+    private Writer journal;
+
+    /**
+     * Opens the cache in {@code directory}, replaying its journal. Does disk I/O.
+     *
+     * @param maxBytes maximum total size of the stored tiles, in bytes
+     */
+    public DiskAvatarCache(File directory, long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes <= 0");
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        entries = new LinkedHashMap<String, Long>(0, 0.75f, true);
+        writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, TAG);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "cannot create " + directory);
+        }
+        readJournal();
+    }
+
+    /**
+     * Returns the stored tile of {@code drawable} at the given size, or null if there is
+     * none. Does disk I/O.
+     */
+    public Bitmap get(TextDrawable drawable, int width, int height) {
+        String key = keyOf(drawable, width, height);
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                return null;
+            }
+            journal("R", key, -1);
+        }
+
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(new File(directory, key + EXTENSION), "r");
+            FileChannel channel = file.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != width || buffer.getInt() != height) {
+                remove(key);
+                return null;
+            }
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            bitmap.copyPixelsFromBuffer(buffer);
+            return bitmap;
+        } catch (IOException e) {
+            remove(key);
+            return null;
+        } catch (RuntimeException e) {
+            // truncated file, the buffer underflowed
+            remove(key);
+            return null;
+        } finally {
+            closeQuietly(file);
+        }
+    }
+
+    /**
+     * Stores the ARGB_8888 {@code bitmap} of {@code drawable} in the background. The bitmap
+     * must not be recycled or modified afterwards. Does nothing once the cache is closed.
+     */
+    public void put(TextDrawable drawable, int width, int height, final Bitmap bitmap) {
+        if (bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+            throw new IllegalArgumentException("only ARGB_8888 bitmaps can be stored");
+        }
+        final String key = keyOf(drawable, width, height);
+        try {
+            writer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    write(key, bitmap);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // closed, tiles are no longer stored
+        }
+    }
+
+    /**
+     * Returns the stored tile, or renders the drawable and stores the result in the
+     * background. Tiles are stored at full alpha and without color filter, apply the
+     * drawable's where the bitmap is drawn.
+     */
+    public Bitmap getOrRender(TextDrawable drawable, int width, int height) {
+        Bitmap bitmap = get(drawable, width, height);
+        if (bitmap == null) {
+            bitmap = TextDrawableCache.rasterize(drawable, width, height);
+            put(drawable, width, height, bitmap);
+        }
+        return bitmap;
+    }
+
+    private void write(String key, Bitmap bitmap) {
+        File file = new File(directory, key + EXTENSION);
+        File temp = new File(directory, key + EXTENSION + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + bitmap.getRowBytes() * bitmap.getHeight());
+        buffer.putInt(MAGIC).putInt(bitmap.getWidth()).putInt(bitmap.getHeight());
+        bitmap.copyPixelsToBuffer(buffer);
+        buffer.flip();
+
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(temp);
+            out.getChannel().write(buffer);
+            out.close();
+            out = null;
+            if (!temp.renameTo(file)) {
+                throw new IOException("cannot rename " + temp);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "cannot store " + key, e);
+            temp.delete();
+            return;
+        } finally {
+            closeQuietly(out);
+        }
+
+        synchronized (this) {
+            Long previous = entries.put(key, file.length());
+            if (previous != null) {
+                size -= previous;
+                redundantOps++;
+            }
+            size += file.length();
+            journal("P", key, file.length());
+            trimToSize();
+        }
+    }
+
+    private synchronized void remove(String key) {
+        Long length = entries.remove(key);
+        if (length != null) {
+            size -= length;
+            new File(directory, key + EXTENSION).delete();
+            journal("D", key, -1);
+        }
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (size > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            size -= eldest.getValue();
+            iterator.remove();
+            new File(directory, eldest.getKey() + EXTENSION).delete();
+            journal("D", eldest.getKey(), -1);
+        }
+    }
+
+    private void readJournal() {
+        File file = new File(directory, JOURNAL);
+        if (file.exists()) {
+            BufferedReader reader = null;
+            try {
+                reader = new BufferedReader(new FileReader(file));
+                String line;
+                int malformed = 0;
+                while ((line = reader.readLine()) != null) {
+                    if (!replay(line)) {
+                        malformed++;
+                    }
+                }
+                if (malformed > 0) {
+                    Log.w(TAG, "skipped " + malformed + " malformed journal lines");
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "cannot read journal, starting over", e);
+                entries.clear();
+            } finally {
+                closeQuietly(reader);
+            }
+        }
+        sweep();
+        size = 0;
+        for (Long length : entries.values()) {
+            size += length;
+        }
+        // also compacts away the malformed lines
+        rebuildJournal();
+    }
+
+    /**
+     * @return false if the line is torn or corrupt and was skipped
+     */
+    private boolean replay(String line) {
+        String[] parts = line.split(" ");
+        if (parts.length < 2 || !isKey(parts[1])) {
+            return false;
+        }
+        String op = parts[0];
+        String key = parts[1];
+        if ("P".equals(op) && parts.length == 3) {
+            long length;
+            try {
+                length = Long.parseLong(parts[2]);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (length < 0) {
+                return false;
+            }
+            entries.put(key, length);
+        }
+        else if ("R".equals(op) && parts.length == 2) {
+            entries.get(key);
+        }
+        else if ("D".equals(op) && parts.length == 2) {
+            entries.remove(key);
+        }
+        else {
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean isKey(String key) {
+        if (key.length() != 40) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (Character.digit(key.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Deletes tiles the journal does not know, e.g. written just before the process died,
+     * and the leftovers of interrupted writes, and forgets entries whose file is gone.
+     * Lengths are taken from the files, a corrupt journal line cannot skew the size.
+     */
+    private void sweep() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            entries.clear();
+            return;
+        }
+        HashMap<String, Long> lengths = new HashMap<String, Long>();
+        for (File file : files) {
+            String name = file.getName();
+            String key = name.endsWith(EXTENSION) ? name.substring(0, name.length() - EXTENSION.length()) : null;
+            if (key != null && entries.containsKey(key)) {
+                lengths.put(key, file.length());
+            }
+            else if (key != null || name.endsWith(".tmp")) {
+                file.delete();
+            }
+        }
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            Long length = lengths.get(entry.getKey());
+            if (length == null) {
+                iterator.remove();
+            }
+            else {
+                entry.setValue(length);
+            }
+        }
+    }
+
+    /**
+     * Rewrites the journal with one line per entry, in least recently used order.
+     */
+    private synchronized void rebuildJournal() {
+        closeQuietly(journal);
+        File file = new File(directory, JOURNAL);
+        File temp = new File(directory, JOURNAL + ".tmp");
+        try {
+            Writer out = new BufferedWriter(new FileWriter(temp));
+            for (Map.Entry<String, Long> entry : entries.entrySet()) {
+                out.write("P " + entry.getKey() + " " + entry.getValue() + "\n");
+            }
+            out.close();
+            if (!temp.renameTo(file)) {
+                throw new IOException("cannot rename " + temp);
+            }
+            journal = new BufferedWriter(new FileWriter(file, true));
+        } catch (IOException e) {
+            Log.w(TAG, "cannot write journal", e);
+            journal = null;
+        }
+        redundantOps = 0;
+    }
+
+    private void journal(String op, String key, long length) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.write(length < 0 ? op + " " + key + "\n" : op + " " + key + " " + length + "\n");
+            if (!"R".equals(op)) {
+                journal.flush();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "cannot append to journal", e);
+        }
+        if (!"P".equals(op) && ++redundantOps >= REDUNDANT_OPS_COMPACT_THRESHOLD
+                && redundantOps >= entries.size()) {
+            rebuildJournal();
+        }
+    }
+
+    /**
+     * Returns a stable file name for the drawable configuration: the SHA-1 of text, color,
+     * shape, radius, size, border, font, font size, text color, bold, text fitting and check
+     * mark. A running transition is rendered finished, so it does not count.
+     */
+    public static String keyOf(TextDrawable drawable, int width, int height) {
+        Typeface font = drawable.getFont();
+        String fontName = font == null ? "none" : TypefaceRegistry.nameOf(font);
+        if (fontName == null) {
+            // not resolved by the registry, only valid within this process
+            fontName = "anon@" + System.identityHashCode(font);
+        }
+
+        StringBuilder config = new StringBuilder(64)
+                .append(drawable.getText()).append('\u0000')
+                .append(drawable.getColor()).append(',')
+                .append(drawable.getShape().getClass().getSimpleName()).append(',')
+                .append(drawable.getRadius()).append(',')
+                .append(width).append('x').append(height).append(',')
+                .append(drawable.getBorderThickness()).append(',')
+                .append(fontName).append(',')
+                .append(drawable.getFontSize()).append(',')
+                .append(drawable.getTextColor()).append(',')
+                .append(drawable.isBold());
+        if (drawable.getStyle().isFittingText()) {
+            // appended only when set, so tiles stored before keep their names
+            config.append(",fit");
+        }
+        if (drawable.isShowingCheckMark()) {
+            config.append(",check");
+        }
+        return sha1(config.toString());
+    }
+
+    private static String sha1(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes("UTF-8"));
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[2 * i] = Character.forDigit((digest[i] >> 4) & 0xf, 16);
+                hex[2 * i + 1] = Character.forDigit(digest[i] & 0xf, 16);
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * @return the total size of the stored tiles, in bytes
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    public long maxSize() {
+        return maxBytes;
+    }
+
+    /**
+     * Closes the journal once the pending writes are done. Stored tiles can still be read
+     * and {@link #getOrRender} still renders, but new tiles are no longer stored.
+     */
+    public void close() {
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (DiskAvatarCache.this) {
+                    closeQuietly(journal);
+                    journal = null;
+                }
+            }
+        });
+        writer.shutdown();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
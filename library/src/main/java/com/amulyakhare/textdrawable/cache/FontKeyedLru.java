@@ -0,0 +1,120 @@
+package com.amulyakhare.textdrawable.cache;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used map of values measured or rendered with a paint, keyed by a text or
+ * code point and the paint's typeface, text size and fake bold setting. Lookups reuse one
+ * probe key, so a hit allocates nothing. Not thread safe, {@link GlyphCache} and
+ * {@link TextMetricsCache} lock around it.
+ */
+final class FontKeyedLru<V> {
+
+    private final LinkedHashMap<Key, V> map;
+    private final Key probe = new Key();
+
+    private int hitCount;
+    private int missCount;
+
+    FontKeyedLru(final int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries <= 0");
+        }
+        map = new LinkedHashMap<Key, V>(0, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the value stored for {@code text} or {@code codePoint} and {@code paint}'s
+     * font, or null after which {@link #put(Object)} stores the value for the same key.
+     *
+     * @param text      the text, or null to key on the code point alone
+     * @param codePoint the code point, ignored unless {@code text} is null
+     */
+    V get(String text, int codePoint, Paint paint) {
+        probe.set(text, codePoint, paint.getTypeface(), paint.getTextSize(), paint.isFakeBoldText());
+        V value = map.get(probe);
+        if (value != null) {
+            hitCount++;
+        }
+        else {
+            missCount++;
+        }
+        return value;
+    }
+
+    /**
+     * Stores {@code value} under the key of the preceding missed {@link #get}.
+     */
+    void put(V value) {
+        Key key = new Key();
+        key.set(probe.text, probe.codePoint, probe.typeface, probe.size, probe.bold);
+        map.put(key, value);
+    }
+
+    void clear() {
+        map.clear();
+    }
+
+    int size() {
+        return map.size();
+    }
+
+    int hitCount() {
+        return hitCount;
+    }
+
+    int missCount() {
+        return missCount;
+    }
+
+    private static final class Key {
+
+        private String text;
+        private int codePoint;
+        private Typeface typeface;
+        private float size;
+        private boolean bold;
+
+        private void set(String text, int codePoint, Typeface typeface, float size, boolean bold) {
+            this.text = text;
+            this.codePoint = text == null ? codePoint : 0;
+            this.typeface = typeface;
+            this.size = size;
+            this.bold = bold;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return codePoint == key.codePoint
+                    && bold == key.bold
+                    && Float.compare(size, key.size) == 0
+                    && (text != null ? text.equals(key.text) : key.text == null)
+                    && (typeface != null ? typeface.equals(key.typeface) : key.typeface == null);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = text != null ? text.hashCode() : codePoint;
+            result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+            result = 31 * result + Float.floatToIntBits(size);
+            result = 31 * result + (bold ? 1 : 0);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.amulyakhare.textdrawable.cache;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import com.amulyakhare.textdrawable.TextDrawable;
+
+/**
+ * Caches single glyphs as alpha masks keyed by (code point, typeface, text size, bold).
+ * A mask drawn with drawBitmap takes the color of the paint it is drawn with, so the
+ * same glyph serves every text color without being rasterized again. Masks hold no
+ * color and glyphs are not shaped together, so drawables only use them for texts of
+ * left to right letters and digits and draw anything else, such as emoji, as text.
+ *
+ * <pre>
+ * TextDrawable.IBuilder builder = TextDrawable.builder()
+ *         .beginConfig()
+ *             .useGlyphCache(GlyphCache.getDefault())
+ *         .endConfig()
+ *         .round();
+ * </pre>
+ */
+public class GlyphCache {
+
+    private static final int DEFAULT_MAX_GLYPHS = 256;
+
+    private static GlyphCache sDefault;
+
+    private final FontKeyedLru<Glyph> glyphs;
+    private final Rect inkBounds = new Rect();
+    private final char[] chars = new char[2];
+
+    private TextDrawable.Metrics metrics;
+
+    public static synchronized GlyphCache getDefault() {
+        if (sDefault == null) {
+            sDefault = new GlyphCache(DEFAULT_MAX_GLYPHS);
+        }
+        return sDefault;
+    }
+
+    /**
+     * @param maxGlyphs number of glyphs kept, least recently used glyphs are dropped first
+     */
+    public GlyphCache(final int maxGlyphs) {
+        if (maxGlyphs <= 0) {
+            throw new IllegalArgumentException("maxGlyphs <= 0");
+        }
+        glyphs = new FontKeyedLru<Glyph>(maxGlyphs);
+    }
+
+    /**
+     * Returns the glyph for {@code codePoint} as rendered by {@code paint}'s typeface,
+     * text size and fake bold setting. The paint itself is not modified.
+     */
+    public synchronized Glyph get(int codePoint, Paint paint) {
+        Glyph glyph = glyphs.get(null, codePoint, paint);
+        if (metrics != null) {
+            metrics.onCacheLookup(this, glyph != null);
+        }
+        if (glyph == null) {
+            glyph = render(codePoint, paint);
+            glyphs.put(glyph);
+        }
+        return glyph;
+    }
+
+    private Glyph render(int codePoint, Paint paint) {
+        Paint maskPaint = new Paint(paint);
+        maskPaint.setTextAlign(Paint.Align.LEFT);
+        maskPaint.setColor(0xff000000);
+        maskPaint.setColorFilter(null);
+        maskPaint.setShader(null);
+
+        int count = Character.toChars(codePoint, chars, 0);
+        float advance = maskPaint.measureText(chars, 0, count);
+        maskPaint.getTextBounds(chars, 0, count, inkBounds);
+        if (inkBounds.isEmpty()) {
+            // white space, nothing to draw
+            return new Glyph(null, advance, 0, 0);
+        }
+
+        // one pixel of margin around the ink keeps anti-aliased edges intact
+        int left = inkBounds.left - 1;
+        int top = inkBounds.top - 1;
+        Bitmap mask = Bitmap.createBitmap(inkBounds.width() + 2, inkBounds.height() + 2, Bitmap.Config.ALPHA_8);
+        new Canvas(mask).drawText(chars, 0, count, -left, -top, maskPaint);
+        return new Glyph(mask, advance, left, top);
+    }
+
+    /**
+     * Reports every lookup to {@code metrics}, or to nobody if null.
+     */
+    public synchronized void setMetrics(TextDrawable.Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public synchronized void evictAll() {
+        glyphs.clear();
+    }
+
+    public synchronized int size() {
+        return glyphs.size();
+    }
+
+    public synchronized int hitCount() {
+        return glyphs.hitCount();
+    }
+
+    public synchronized int missCount() {
+        return glyphs.missCount();
+    }
+
+    /**
+     * A pre-rendered glyph. The mask is positioned relative to the pen position on the
+     * baseline, and is null for glyphs without ink such as spaces.
+     */
+    public static final class Glyph {
+
+        public final Bitmap mask;
+        public final float advance;
+        public final int left;
+        public final int top;
+
+        private Glyph(Bitmap mask, float advance, int left, int top) {
+            this.mask = mask;
+            this.advance = advance;
+            this.left = left;
+            this.top = top;
+        }
+    }
+}
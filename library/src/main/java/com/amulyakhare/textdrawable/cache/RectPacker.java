@@ -0,0 +1,77 @@
+package com.amulyakhare.textdrawable.cache;
+
+import android.graphics.Rect;
+
+/**
+ * Shelf rectangle packer: rectangles are placed left to right on horizontal shelves, a
+ * new shelf is opened below the last one when a rectangle does not fit on any shelf.
+ */
+class RectPacker {
+
+    private final int width;
+    private final int height;
+
+    // shelves are stored as parallel arrays of (top, height, used width)
+    private int[] shelfTop = new int[8];
+    private int[] shelfHeight = new int[8];
+    private int[] shelfUsed = new int[8];
+    private int shelfCount;
+    private int bottom;
+
+    RectPacker(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Reserves a {@code w} x {@code h} area and stores it in {@code out}.
+     *
+     * @return false if there is no room left
+     */
+    boolean insert(int w, int h, Rect out) {
+        if (w > width || h > height) {
+            return false;
+        }
+
+        // best fit: the lowest shelf that is tall enough and has room left
+        int best = -1;
+        for (int i = 0; i < shelfCount; i++) {
+            if (shelfHeight[i] >= h && width - shelfUsed[i] >= w
+                    && (best < 0 || shelfHeight[i] < shelfHeight[best])) {
+                best = i;
+            }
+        }
+
+        if (best < 0) {
+            if (bottom + h > height) {
+                return false;
+            }
+            best = addShelf(h);
+        }
+
+        int left = shelfUsed[best];
+        out.set(left, shelfTop[best], left + w, shelfTop[best] + h);
+        shelfUsed[best] += w;
+        return true;
+    }
+
+    private int addShelf(int h) {
+        if (shelfCount == shelfTop.length) {
+            int capacity = shelfCount * 2;
+            shelfTop = grow(shelfTop, capacity);
+            shelfHeight = grow(shelfHeight, capacity);
+            shelfUsed = grow(shelfUsed, capacity);
+        }
+        shelfTop[shelfCount] = bottom;
+        shelfHeight[shelfCount] = h;
+        shelfUsed[shelfCount] = 0;
+        bottom += h;
+        return shelfCount++;
+    }
+
+    private static int[] grow(int[] array, int capacity) {
+        int[] grown = new int[capacity];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+}
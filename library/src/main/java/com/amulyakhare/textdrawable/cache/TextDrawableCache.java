@@ -0,0 +1,292 @@
+package com.amulyakhare.textdrawable.cache;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+
+import com.amulyakhare.textdrawable.TextDrawable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rasterizes a {@link TextDrawable} once into a {@link Bitmap} and hands out drawables
+ * that replay it with a single drawBitmap call. Entries are evicted least recently used
+ * first once the total bitmap size exceeds the byte budget.
+ *
+ * <pre>
+ * TextDrawableCache cache = new TextDrawableCache(2 * 1024 * 1024);
+ * imageView.setImageDrawable(cache.get(style, "A", color, size, size));
+ * </pre>
+ */
+public class TextDrawableCache {
+
+    private final LinkedHashMap<Key, Bitmap> map;
+    private final int maxBytes;
+    private int size;
+
+    private int hitCount;
+    private int missCount;
+    private int evictionCount;
+
+    private volatile TextDrawable.Metrics metrics;
+
+    /**
+     * @param maxBytes maximum total size of the cached bitmaps, in bytes
+     */
+    public TextDrawableCache(int maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes <= 0");
+        }
+        this.maxBytes = maxBytes;
+        this.map = new LinkedHashMap<Key, Bitmap>(0, 0.75f, true);
+    }
+
+    /**
+     * Returns a drawable showing {@code drawable} rendered at {@code width} x {@code height},
+     * rasterizing it only if no identical drawable of that size is cached. The drawable's
+     * alpha and color filter are applied to the returned drawable, not to the cached tile.
+     */
+    public Drawable get(TextDrawable drawable, int width, int height) {
+        BitmapTileDrawable tile = new BitmapTileDrawable(getBitmap(drawable, width, height));
+        if (drawable.getAlpha() != 0xff) {
+            tile.setAlpha(drawable.getAlpha());
+        }
+        if (drawable.getColorFilter() != null) {
+            tile.setColorFilter(drawable.getColorFilter());
+        }
+        return tile;
+    }
+
+    /**
+     * Returns the tile of {@code drawable} at full alpha and without its color filter,
+     * see {@link TextDrawable#toBitmap(int, int)}.
+     */
+    public Bitmap getBitmap(TextDrawable drawable, int width, int height) {
+        // a running transition is rendered finished, so only the check mark adds to the key
+        Key key = new Key(drawable.getStyle(), drawable.getText(), drawable.isShowingCheckMark(),
+                drawable.getColor(), width, height);
+        Bitmap bitmap = lookup(key);
+        if (bitmap == null) {
+            // render outside the lock, a concurrent miss on the same key only costs a redraw
+            bitmap = drawable.toBitmap(width, height);
+            store(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Same as {@link #get(TextDrawable, int, int)} for {@code style.build(text, color)},
+     * but only builds the drawable if the tile is not cached.
+     */
+    public Drawable get(TextDrawable.Style style, String text, int color, int width, int height) {
+        return new BitmapTileDrawable(getBitmap(style, text, color, width, height));
+    }
+
+    public Bitmap getBitmap(TextDrawable.Style style, String text, int color, int width, int height) {
+        String value = style.isUpperCase() ? text.toUpperCase() : text;
+        Key key = new Key(style, value, false, color, width, height);
+        Bitmap bitmap = lookup(key);
+        if (bitmap == null) {
+            bitmap = style.render(text, color, width, height);
+            store(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    private Bitmap lookup(Key key) {
+        Bitmap bitmap;
+        synchronized (this) {
+            bitmap = map.get(key);
+            if (bitmap != null) {
+                hitCount++;
+            }
+            else {
+                missCount++;
+            }
+        }
+        reportLookup(bitmap != null);
+        return bitmap;
+    }
+
+    private synchronized void store(Key key, Bitmap bitmap) {
+        Bitmap previous = map.put(key, bitmap);
+        size += sizeOf(bitmap);
+        if (previous != null) {
+            size -= sizeOf(previous);
+        }
+        trimToSize(maxBytes);
+    }
+
+    private void reportLookup(boolean hit) {
+        TextDrawable.Metrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.onCacheLookup(this, hit);
+        }
+    }
+
+    /**
+     * Reports every lookup to {@code metrics}, or to nobody if null.
+     */
+    public void setMetrics(TextDrawable.Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Draws {@code drawable} into a new ARGB_8888 bitmap of the given size. A
+     * {@link TextDrawable} is drawn from a copy at full alpha and without color filter, see
+     * {@link TextDrawable#toBitmap(int, int)}, the bounds of other drawables are restored
+     * afterwards.
+     */
+    public static Bitmap rasterize(Drawable drawable, int width, int height) {
+        if (drawable instanceof TextDrawable) {
+            return ((TextDrawable) drawable).toBitmap(width, height);
+        }
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Rect oldBounds = drawable.copyBounds();
+        drawable.setBounds(0, 0, width, height);
+        drawable.draw(new Canvas(bitmap));
+        drawable.setBounds(oldBounds);
+        return bitmap;
+    }
+
+    private void trimToSize(int maxSize) {
+        Iterator<Map.Entry<Key, Bitmap>> iterator = map.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            Map.Entry<Key, Bitmap> eldest = iterator.next();
+            size -= sizeOf(eldest.getValue());
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    private static int sizeOf(Bitmap bitmap) {
+        return bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    public synchronized void evictAll() {
+        trimToSize(-1);
+    }
+
+    /**
+     * @return the total size of the cached bitmaps, in bytes
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    public int maxSize() {
+        return maxBytes;
+    }
+
+    public synchronized int hitCount() {
+        return hitCount;
+    }
+
+    public synchronized int missCount() {
+        return missCount;
+    }
+
+    public synchronized int evictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        int accesses = hitCount + missCount;
+        int hitPercent = accesses != 0 ? (100 * hitCount / accesses) : 0;
+        return String.format("TextDrawableCache[maxBytes=%d,hits=%d,misses=%d,evictions=%d,hitRate=%d%%]",
+                maxBytes, hitCount, missCount, evictionCount, hitPercent);
+    }
+
+    private static final class Key {
+
+        private final String text;
+        private final boolean checkMark;
+        private final int color;
+        private final Class<?> shape;
+        private final float radius;
+        private final int width;
+        private final int height;
+        private final int borderThickness;
+        private final Typeface font;
+        private final int fontSize;
+        private final boolean fitText;
+        private final int textColor;
+        private final boolean autoTextColor;
+        private final boolean isBold;
+        private final int hashCode;
+
+        /**
+         * @param text the text with the style's upper casing applied
+         */
+        private Key(TextDrawable.Style style, String text, boolean checkMark, int color, int width, int height) {
+            this.text = text;
+            this.checkMark = checkMark;
+            this.color = color;
+            shape = style.getShape().getClass();
+            radius = style.getRadius();
+            this.width = width;
+            this.height = height;
+            borderThickness = style.getBorderThickness();
+            font = style.getFont();
+            fontSize = style.getFontSize();
+            // a fitted text is sized from the text, not from the font size
+            fitText = style.isFittingText();
+            // the text color of a drawable follows from its color and these two
+            textColor = style.getTextColor();
+            autoTextColor = style.isAutoTextColor();
+            isBold = style.isBold();
+
+            int result = text.hashCode();
+            result = 31 * result + (checkMark ? 1 : 0);
+            result = 31 * result + color;
+            result = 31 * result + shape.hashCode();
+            result = 31 * result + Float.floatToIntBits(radius);
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + borderThickness;
+            result = 31 * result + (font != null ? font.hashCode() : 0);
+            result = 31 * result + fontSize;
+            result = 31 * result + (fitText ? 1 : 0);
+            result = 31 * result + textColor;
+            result = 31 * result + (autoTextColor ? 1 : 0);
+            result = 31 * result + (isBold ? 1 : 0);
+            hashCode = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hashCode == key.hashCode
+                    && checkMark == key.checkMark
+                    && color == key.color
+                    && width == key.width
+                    && height == key.height
+                    && borderThickness == key.borderThickness
+                    && fontSize == key.fontSize
+                    && fitText == key.fitText
+                    && textColor == key.textColor
+                    && autoTextColor == key.autoTextColor
+                    && isBold == key.isBold
+                    && Float.compare(radius, key.radius) == 0
+                    && shape == key.shape
+                    && (font != null ? font.equals(key.font) : key.font == null)
+                    && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.amulyakhare.textdrawable.cache;
+
+import android.graphics.Paint;
+
+import com.amulyakhare.textdrawable.TextDrawable;
+
+/**
+ * Caches the ascent and descent of fonts keyed by (typeface, text size, bold), and the
+ * advance width of texts keyed by (text, typeface, text size, bold), so that laying out a
+ * drawable in a font used before makes no native measurement call. Ascent and descent
+ * depend on the font only and are shared by every text; advances are only measured for
+ * drawables that fit their text to the bounds.
+ *
+ * <pre>
+ * TextDrawable.IBuilder builder = TextDrawable.builder()
+ *         .beginConfig()
+ *             .useTextMetricsCache(TextMetricsCache.getDefault())
+ *             .fitText()
+ *         .endConfig()
+ *         .round();
+ * </pre>
+ */
+public class TextMetricsCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 512;
+
+    // typefaces, sizes and bold settings in use at once, a handful per app
+    private static final int MAX_FONTS = 32;
+
+    private static TextMetricsCache sDefault;
+
+    private final FontKeyedLru<FontMetrics> fonts;
+    private final FontKeyedLru<Float> advances;
+
+    private TextDrawable.Metrics metrics;
+
+    public static synchronized TextMetricsCache getDefault() {
+        if (sDefault == null) {
+            sDefault = new TextMetricsCache(DEFAULT_MAX_ENTRIES);
+        }
+        return sDefault;
+    }
+
+    /**
+     * @param maxEntries number of text advances kept, least recently used ones are dropped
+     *                   first
+     */
+    public TextMetricsCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries <= 0");
+        }
+        fonts = new FontKeyedLru<FontMetrics>(MAX_FONTS);
+        advances = new FontKeyedLru<Float>(maxEntries);
+    }
+
+    /**
+     * Returns the ascent and descent of {@code paint}'s typeface at its text size and fake
+     * bold setting. The paint itself is not modified.
+     */
+    public synchronized FontMetrics getFontMetrics(Paint paint) {
+        FontMetrics fontMetrics = fonts.get(null, 0, paint);
+        report(fontMetrics != null);
+        if (fontMetrics == null) {
+            fontMetrics = new FontMetrics(paint.ascent(), paint.descent());
+            fonts.put(fontMetrics);
+        }
+        return fontMetrics;
+    }
+
+    /**
+     * Returns the advance width of {@code text} as measured by {@code paint}'s typeface,
+     * text size and fake bold setting. The paint itself is not modified.
+     */
+    public synchronized float getAdvance(String text, Paint paint) {
+        Float advance = advances.get(text, 0, paint);
+        report(advance != null);
+        if (advance == null) {
+            advance = paint.measureText(text);
+            advances.put(advance);
+        }
+        return advance;
+    }
+
+    private void report(boolean hit) {
+        if (metrics != null) {
+            metrics.onCacheLookup(this, hit);
+        }
+    }
+
+    /**
+     * Reports every lookup to {@code metrics}, or to nobody if null.
+     */
+    public synchronized void setMetrics(TextDrawable.Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public synchronized void evictAll() {
+        fonts.clear();
+        advances.clear();
+    }
+
+    /**
+     * @return the number of cached fonts and text advances
+     */
+    public synchronized int size() {
+        return fonts.size() + advances.size();
+    }
+
+    public synchronized int hitCount() {
+        return fonts.hitCount() + advances.hitCount();
+    }
+
+    public synchronized int missCount() {
+        return fonts.missCount() + advances.missCount();
+    }
+
+    /**
+     * Measured font, in px. The ascent is negative like {@link Paint#ascent()}.
+     */
+    public static final class FontMetrics {
+
+        public final float ascent;
+        public final float descent;
+
+        private FontMetrics(float ascent, float descent) {
+            this.ascent = ascent;
+            this.descent = descent;
+        }
+    }
+}
@@ -1,8 +1,7 @@
 package com.amulyakhare.textdrawable.util;
 
-import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author amulya
@@ -10,12 +9,56 @@ import java.util.Random;
  */
 public class ColorGenerator {
 
-    public static ColorGenerator DEFAULT;
+    public static final ColorGenerator DEFAULT;
 
-    public static ColorGenerator MATERIAL;
+    public static final ColorGenerator MATERIAL;
+
+    /**
+     * Borders are drawn in the tile color darkened by this factor.
+     */
+    public static final float SHADE_FACTOR = 0.9f;
+
+    /**
+     * Pressed states are drawn in the tile color darkened by this factor.
+     */
+    public static final float PRESSED_SHADE_FACTOR = 0.75f;
+
+    /**
+     * Text colors picked by {@link #getContrastColor(int)}.
+     */
+    public static final int CONTRAST_LIGHT = 0xffffffff;
+    public static final int CONTRAST_DARK = 0xff212121;
+
+    // minimum WCAG 2.0 contrast ratio for large text
+    private static final double LARGE_TEXT_CONTRAST = 3.0;
+
+    // linear light of each 8 bit sRGB channel value, so luminance needs no Math.pow
+    private static final double[] LINEAR = new double[256];
+
+    private static final double LIGHT_LUMINANCE;
+    private static final double DARK_LUMINANCE;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    // seeds the per-thread generators, each thread gets its own SplitMix64 stream
+    private static final AtomicLong sSeeder = new AtomicLong(System.nanoTime());
+
+    private static final ThreadLocal<SplitMix> sRandom = new ThreadLocal<SplitMix>() {
+        @Override
+        protected SplitMix initialValue() {
+            return new SplitMix(SplitMix.mix64(sSeeder.addAndGet(GOLDEN_GAMMA)));
+        }
+    };
 
     static {
-        DEFAULT = create(Arrays.asList(
+        for (int i = 0; i < LINEAR.length; i++) {
+            double c = i / 255.0;
+            LINEAR[i] = c <= 0.03928 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+        }
+        LIGHT_LUMINANCE = luminance(CONTRAST_LIGHT);
+        DARK_LUMINANCE = luminance(CONTRAST_DARK);
+
+        DEFAULT = create(new int[] {
                 0xfff16364,
                 0xfff58559,
                 0xfff9a43e,
@@ -25,8 +68,8 @@ public class ColorGenerator {
                 0xff2093cd,
                 0xffad62a7,
                 0xff805781
-        ));
-        MATERIAL = create(Arrays.asList(
+        });
+        MATERIAL = create(new int[] {
                 0xffe57373,
                 0xfff06292,
                 0xffba68c8,
@@ -44,26 +87,198 @@ public class ColorGenerator {
                 0xffffb74d,
                 0xffa1887f,
                 0xff90a4ae
-        ));
+        });
     }
 
-    private final List<Integer> mColors;
-    private final Random mRandom;
+    private final int[] mColors;
+
+    // companion tables, one entry per palette color
+    private final int[] mDarkerShades;
+    private final int[] mPressedShades;
+    private final int[] mContrastColors;
 
     public static ColorGenerator create(List<Integer> colorList) {
-        return new ColorGenerator(colorList);
+        int[] colors = new int[colorList.size()];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = colorList.get(i);
+        }
+        return new ColorGenerator(colors);
+    }
+
+    public static ColorGenerator create(int[] colors) {
+        return new ColorGenerator(colors.clone());
     }
 
-    private ColorGenerator(List<Integer> colorList) {
-        mColors = colorList;
-        mRandom = new Random(System.currentTimeMillis());
+    private ColorGenerator(int[] colors) {
+        if (colors.length == 0) {
+            throw new IllegalArgumentException("colors must not be empty");
+        }
+        mColors = colors;
+        mDarkerShades = new int[colors.length];
+        mPressedShades = new int[colors.length];
+        mContrastColors = new int[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            mDarkerShades[i] = getDarkerShade(colors[i]);
+            mPressedShades[i] = shade(colors[i], PRESSED_SHADE_FACTOR);
+            mContrastColors[i] = getContrastColor(colors[i]);
+        }
     }
 
+    /**
+     * Returns a random palette color. Every thread draws from its own generator, so this
+     * can be called concurrently from any number of threads without contention.
+     */
     public int getRandomColor() {
-        return mColors.get(mRandom.nextInt(mColors.size()));
+        return mColors[indexOf(sRandom.get().nextInt(), mColors.length)];
     }
 
     public int getColor(Object key) {
-        return mColors.get(Math.abs(key.hashCode()) % mColors.size());
+        if (key instanceof CharSequence) {
+            return getColor((CharSequence) key);
+        }
+        return mColors[colorIndexOf(key.hashCode())];
+    }
+
+    /**
+     * Returns the color for the given key. A String gets the color its hashCode() always
+     * picked, any other char sequence the color of the String of the same characters,
+     * without allocating that String.
+     */
+    public int getColor(CharSequence key) {
+        return mColors[getColorIndex(key)];
+    }
+
+    /**
+     * Returns the palette index of the color for the given key, to look up the color and
+     * its companion colors without deriving them again.
+     */
+    public int getColorIndex(CharSequence key) {
+        return colorIndexOf(hash(key));
+    }
+
+    /**
+     * Maps a hash code to a palette index like earlier versions did, except that
+     * {@link Integer#MIN_VALUE} no longer yields a negative index.
+     */
+    private int colorIndexOf(int hash) {
+        return hash == Integer.MIN_VALUE ? 0 : Math.abs(hash) % mColors.length;
+    }
+
+    public int size() {
+        return mColors.length;
+    }
+
+    /**
+     * @return the palette color at the given index
+     */
+    public int getColorAt(int index) {
+        return mColors[index];
+    }
+
+    /**
+     * @return {@link #getDarkerShade(int)} of the palette color at the given index
+     */
+    public int getDarkerShadeAt(int index) {
+        return mDarkerShades[index];
+    }
+
+    /**
+     * @return the palette color at the given index darkened by {@link #PRESSED_SHADE_FACTOR}
+     */
+    public int getPressedShadeAt(int index) {
+        return mPressedShades[index];
+    }
+
+    /**
+     * @return {@link #getContrastColor(int)} of the palette color at the given index
+     */
+    public int getContrastColorAt(int index) {
+        return mContrastColors[index];
+    }
+
+    /**
+     * Returns the opaque border shade of {@code color}: each channel multiplied by
+     * {@link #SHADE_FACTOR}. Pure Java, so every renderer darkens colors identically.
+     */
+    public static int getDarkerShade(int color) {
+        return shade(color, SHADE_FACTOR);
+    }
+
+    private static int shade(int color, float factor) {
+        int red = (int) (factor * ((color >> 16) & 0xff));
+        int green = (int) (factor * ((color >> 8) & 0xff));
+        int blue = (int) (factor * (color & 0xff));
+        return 0xff000000 | (red << 16) | (green << 8) | blue;
+    }
+
+    /**
+     * Returns {@link #CONTRAST_LIGHT} if it reaches the WCAG contrast ratio for large text
+     * against the opaque {@code color}, or else whichever of {@link #CONTRAST_LIGHT} and
+     * {@link #CONTRAST_DARK} contrasts more. Tile initials are large text, so light text is
+     * kept on all but light colors. Cheap enough to call per bind, palette colors are
+     * also precomputed, see {@link #getContrastColorAt(int)}.
+     */
+    public static int getContrastColor(int color) {
+        double luminance = luminance(color);
+        double light = (LIGHT_LUMINANCE + 0.05) / (luminance + 0.05);
+        if (light >= LARGE_TEXT_CONTRAST) {
+            return CONTRAST_LIGHT;
+        }
+        double dark = (luminance + 0.05) / (DARK_LUMINANCE + 0.05);
+        return light >= dark ? CONTRAST_LIGHT : CONTRAST_DARK;
+    }
+
+    /**
+     * Relative luminance of an sRGB color as defined by WCAG 2.0, alpha is ignored.
+     */
+    static double luminance(int color) {
+        return 0.2126 * LINEAR[(color >> 16) & 0xff]
+                + 0.7152 * LINEAR[(color >> 8) & 0xff]
+                + 0.0722 * LINEAR[color & 0xff];
+    }
+
+    /**
+     * {@link String#hashCode()} of the characters of the key, cached by a String and
+     * specified by the language, so colors are the same on every platform and runtime.
+     */
+    static int hash(CharSequence key) {
+        if (key instanceof String) {
+            return key.hashCode();
+        }
+        int h = 0;
+        for (int i = 0, length = key.length(); i < length; i++) {
+            h = 31 * h + key.charAt(i);
+        }
+        return h;
+    }
+
+    /**
+     * Maps a hash to [0, size) with a multiply-shift instead of a division.
+     */
+    static int indexOf(int hash, int size) {
+        return (int) (((hash & 0xffffffffL) * size) >>> 32);
+    }
+
+    /**
+     * SplitMix64 generator, confined to a single thread.
+     */
+    private static final class SplitMix {
+
+        private long seed;
+
+        private SplitMix(long seed) {
+            this.seed = seed;
+        }
+
+        int nextInt() {
+            seed += GOLDEN_GAMMA;
+            return (int) (mix64(seed) >>> 32);
+        }
+
+        static long mix64(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
     }
 }
@@ -0,0 +1,254 @@
+package com.amulyakhare.textdrawable.util;
+
+import java.text.BreakIterator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Extracts the initials shown on a tile from a display name, one per word for up to
+ * {@code maxInitials} words (first words and the last one). A single initial is the one
+ * of the first word:
+ *
+ * <pre>
+ * InitialsExtractor initials = new InitialsExtractor(2, 512);
+ * initials.get("Sherlock Holmes");       // "SH"
+ * initials.get("John Ronald Tolkien");   // "JT"
+ * new InitialsExtractor(1, 512).get("John Ronald Tolkien");  // "J"
+ * initials.get("\u6bdb\u6cfd\u4e1c");    // "\u6bdb"
+ * initials.get("\ud83c\udf89 Party Crew");  // "\ud83c\udf89", a party popper emoji
+ * </pre>
+ *
+ * Initials are whole grapheme clusters, so surrogate pairs, combining marks and emoji
+ * sequences are never split. Names in scripts written without spaces (CJK) get their
+ * first character, names starting with a symbol such as an emoji get that symbol.
+ * Results are cached per name and identical initials share one string, so binding the
+ * same name again allocates nothing. Pure Java, also used by the headless renderer.
+ */
+public class InitialsExtractor {
+
+    public static final int MAX_INITIALS = 3;
+
+    // distinct initials are few, but names in ideographic scripts can yield many
+    private static final int MAX_INTERNED = 4096;
+
+    private static final int ZERO_WIDTH_JOINER = 0x200d;
+    private static final int VARIATION_SELECTOR_EMOJI = 0xfe0f;
+    private static final int SKIN_TONE_FIRST = 0x1f3fb;
+    private static final int SKIN_TONE_LAST = 0x1f3ff;
+    private static final int REGIONAL_INDICATOR_FIRST = 0x1f1e6;
+    private static final int REGIONAL_INDICATOR_LAST = 0x1f1ff;
+
+    private static final ThreadLocal<BreakIterator> sGraphemes = new ThreadLocal<BreakIterator>() {
+        @Override
+        protected BreakIterator initialValue() {
+            return BreakIterator.getCharacterInstance(Locale.ROOT);
+        }
+    };
+
+    private final int maxInitials;
+    private final LinkedHashMap<String, String> cache;
+    private final HashMap<String, String> interned;
+
+    private int hitCount;
+    private int missCount;
+
+    /**
+     * @param maxInitials number of initials, between 1 and {@link #MAX_INITIALS}
+     * @param maxNames    number of names whose initials are cached, least recently used
+     *                    names are dropped first
+     */
+    public InitialsExtractor(int maxInitials, final int maxNames) {
+        if (maxInitials < 1 || maxInitials > MAX_INITIALS) {
+            throw new IllegalArgumentException("maxInitials must be between 1 and " + MAX_INITIALS);
+        }
+        if (maxNames <= 0) {
+            throw new IllegalArgumentException("maxNames <= 0");
+        }
+        this.maxInitials = maxInitials;
+        cache = new LinkedHashMap<String, String>(0, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxNames;
+            }
+        };
+        interned = new HashMap<String, String>();
+    }
+
+    /**
+     * Returns the initials of {@code name}, an empty string if it has none.
+     */
+    public synchronized String get(CharSequence name) {
+        String key = name.toString();
+        String initials = cache.get(key);
+        if (initials != null) {
+            hitCount++;
+            return initials;
+        }
+        missCount++;
+
+        initials = extract(key, maxInitials);
+        String shared = interned.get(initials);
+        if (shared != null) {
+            initials = shared;
+        }
+        else if (interned.size() < MAX_INTERNED) {
+            interned.put(initials, initials);
+        }
+        cache.put(key, initials);
+        return initials;
+    }
+
+    /**
+     * Extracts the initials of {@code name} without caching. Can be called from any thread.
+     *
+     * @param maxInitials number of initials, between 1 and {@link #MAX_INITIALS}
+     */
+    public static String extract(String name, int maxInitials) {
+        BreakIterator graphemes = sGraphemes.get();
+        graphemes.setText(name);
+
+        // start and end of the initial grapheme of each word
+        int[] starts = new int[maxInitials];
+        int[] ends = new int[maxInitials];
+        int count = 0;
+
+        int length = name.length();
+        int offset = 0;
+        while (offset < length) {
+            // skip to the next word
+            int codePoint = name.codePointAt(offset);
+            if (!Character.isLetterOrDigit(codePoint) && !isSymbol(codePoint)) {
+                offset += Character.charCount(codePoint);
+                continue;
+            }
+
+            int end = extendCluster(name, offset, graphemes.following(offset));
+            if (count == 0 && (isSymbol(codePoint) || isUnspaced(codePoint))) {
+                // an emoji or a name written without spaces, one initial tells enough
+                return upperCase(name, offset, end, new StringBuilder(end - offset)).toString();
+            }
+            if (count < maxInitials) {
+                starts[count] = offset;
+                ends[count] = end;
+                count++;
+            }
+            else if (maxInitials >= 2) {
+                // keep the first words and let the last word replace the previous last one
+                starts[count - 1] = offset;
+                ends[count - 1] = end;
+            }
+            else {
+                // a single initial is the one of the first word
+                break;
+            }
+
+            // skip the rest of the word
+            offset = end;
+            while (offset < length) {
+                codePoint = name.codePointAt(offset);
+                if (Character.isWhitespace(codePoint) || codePoint == '-' || codePoint == '_') {
+                    break;
+                }
+                offset += Character.charCount(codePoint);
+            }
+        }
+
+        if (count == 0) {
+            return "";
+        }
+        StringBuilder initials = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            upperCase(name, starts[i], ends[i], initials);
+        }
+        return initials.toString();
+    }
+
+    /**
+     * Older break iterators (Java before 20, Android before ICU 60) end clusters before
+     * emoji modifiers and zero width joiners, and between the two regional indicators of
+     * a flag. Extend them so emoji sequences stay whole.
+     */
+    private static int extendCluster(String name, int start, int end) {
+        int length = name.length();
+        int first = name.codePointAt(start);
+        if (isRegionalIndicator(first) && end == start + Character.charCount(first)
+                && end < length && isRegionalIndicator(name.codePointAt(end))) {
+            end += Character.charCount(name.codePointAt(end));
+        }
+        while (end < length) {
+            int codePoint = name.codePointAt(end);
+            if (codePoint == ZERO_WIDTH_JOINER && end + 1 < length) {
+                end += 1;
+                end += Character.charCount(name.codePointAt(end));
+            }
+            else if (codePoint == VARIATION_SELECTOR_EMOJI
+                    || (codePoint >= SKIN_TONE_FIRST && codePoint <= SKIN_TONE_LAST)
+                    || Character.getType(codePoint) == Character.NON_SPACING_MARK
+                    || Character.getType(codePoint) == Character.ENCLOSING_MARK) {
+                end += Character.charCount(codePoint);
+            }
+            else {
+                break;
+            }
+        }
+        return end;
+    }
+
+    private static boolean isRegionalIndicator(int codePoint) {
+        return codePoint >= REGIONAL_INDICATOR_FIRST && codePoint <= REGIONAL_INDICATOR_LAST;
+    }
+
+    /**
+     * Appends the grapheme between {@code start} and {@code end} in upper case. Maps one code
+     * point at a time, so an initial never grows into two letters, e.g. "\u00df" to "SS", and
+     * does not depend on the default locale, a cached result must not change with it.
+     */
+    private static StringBuilder upperCase(String name, int start, int end, StringBuilder out) {
+        int offset = start;
+        while (offset < end) {
+            int codePoint = name.codePointAt(offset);
+            out.appendCodePoint(Character.toUpperCase(codePoint));
+            offset += Character.charCount(codePoint);
+        }
+        return out;
+    }
+
+    private static boolean isSymbol(int codePoint) {
+        int type = Character.getType(codePoint);
+        return type == Character.OTHER_SYMBOL || type == Character.MATH_SYMBOL;
+    }
+
+    /**
+     * @return whether words of the code point's script are usually not separated by spaces
+     */
+    private static boolean isUnspaced(int codePoint) {
+        Character.UnicodeBlock block = Character.UnicodeBlock.of(codePoint);
+        return block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
+                || block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A
+                || block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_B
+                || block == Character.UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS
+                || block == Character.UnicodeBlock.HIRAGANA
+                || block == Character.UnicodeBlock.KATAKANA
+                || block == Character.UnicodeBlock.HANGUL_SYLLABLES
+                || block == Character.UnicodeBlock.THAI;
+    }
+
+    public int getMaxInitials() {
+        return maxInitials;
+    }
+
+    public synchronized int hitCount() {
+        return hitCount;
+    }
+
+    public synchronized int missCount() {
+        return missCount;
+    }
+
+    public synchronized void evictAll() {
+        cache.clear();
+        interned.clear();
+    }
+}
@@ -0,0 +1,102 @@
+package com.amulyakhare.textdrawable.util;
+
+import com.amulyakhare.textdrawable.TextDrawable;
+
+/**
+ * Aggregates {@link TextDrawable.Metrics} callbacks into counters that can be polled and
+ * forwarded to telemetry, e.g. once per screen:
+ *
+ * <pre>
+ * MetricsRecorder recorder = new MetricsRecorder();
+ * TextDrawable.IBuilder builder = TextDrawable.builder()
+ *         .beginConfig()
+ *             .metrics(recorder)
+ *         .endConfig()
+ *         .round();
+ * cache.setMetrics(recorder);
+ * ...
+ * report(recorder.getDrawCount(), recorder.getMaxDrawNanos(), recorder.getCacheHitRate());
+ * recorder.reset();
+ * </pre>
+ */
+public class MetricsRecorder implements TextDrawable.Metrics {
+
+    private long buildCount;
+    private long drawCount;
+    private long totalDrawNanos;
+    private long maxDrawNanos;
+    private long cacheHits;
+    private long cacheMisses;
+
+    @Override
+    public synchronized void onBuild(TextDrawable drawable) {
+        buildCount++;
+    }
+
+    @Override
+    public synchronized void onDraw(TextDrawable drawable, long nanos) {
+        drawCount++;
+        totalDrawNanos += nanos;
+        if (nanos > maxDrawNanos) {
+            maxDrawNanos = nanos;
+        }
+    }
+
+    @Override
+    public synchronized void onCacheLookup(Object cache, boolean hit) {
+        if (hit) {
+            cacheHits++;
+        }
+        else {
+            cacheMisses++;
+        }
+    }
+
+    public synchronized long getBuildCount() {
+        return buildCount;
+    }
+
+    public synchronized long getDrawCount() {
+        return drawCount;
+    }
+
+    public synchronized long getTotalDrawNanos() {
+        return totalDrawNanos;
+    }
+
+    public synchronized long getMaxDrawNanos() {
+        return maxDrawNanos;
+    }
+
+    public synchronized long getCacheHits() {
+        return cacheHits;
+    }
+
+    public synchronized long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * @return the fraction of cache lookups that were hits, 0 if there were none
+     */
+    public synchronized float getCacheHitRate() {
+        long lookups = cacheHits + cacheMisses;
+        return lookups == 0 ? 0f : (float) cacheHits / lookups;
+    }
+
+    public synchronized void reset() {
+        buildCount = 0;
+        drawCount = 0;
+        totalDrawNanos = 0;
+        maxDrawNanos = 0;
+        cacheHits = 0;
+        cacheMisses = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long averageNanos = drawCount == 0 ? 0 : totalDrawNanos / drawCount;
+        return String.format("MetricsRecorder[builds=%d,draws=%d,avgDrawNanos=%d,maxDrawNanos=%d,cacheHitRate=%.2f]",
+                buildCount, drawCount, averageNanos, maxDrawNanos, getCacheHitRate());
+    }
+}
@@ -0,0 +1,84 @@
+package com.amulyakhare.textdrawable.util;
+
+import android.content.res.AssetManager;
+import android.graphics.Typeface;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Process wide cache of resolved typefaces, so that creating builders does not resolve
+ * the same font over and over again.
+ *
+ * <pre>
+ * Typeface light = TypefaceRegistry.get("sans-serif-light", Typeface.NORMAL);
+ * Typeface custom = TypefaceRegistry.fromAsset(context.getAssets(), "fonts/Roboto-Medium.ttf");
+ * </pre>
+ *
+ * Family fonts are few and kept for the lifetime of the process, fonts loaded from assets
+ * are kept in a bounded, least recently used cache.
+ */
+public final class TypefaceRegistry {
+
+    private static final int MAX_ASSET_FONTS = 16;
+
+    // family -> typeface per style (NORMAL, BOLD, ITALIC, BOLD_ITALIC)
+    private static final HashMap<String, Typeface[]> sFamilies = new HashMap<String, Typeface[]>();
+
+    private static final LinkedHashMap<String, Typeface> sAssets =
+            new LinkedHashMap<String, Typeface>(0, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Typeface> eldest) {
+                    return size() > MAX_ASSET_FONTS;
+                }
+            };
+
+    // stable names of the resolved typefaces, see nameOf(Typeface)
+    private static final WeakHashMap<Typeface, String> sNames = new WeakHashMap<Typeface, String>();
+
+    private TypefaceRegistry() {
+    }
+
+    /**
+     * Same as {@link Typeface#create(String, int)}, resolved once per family and style.
+     */
+    public static synchronized Typeface get(String family, int style) {
+        Typeface[] styles = sFamilies.get(family);
+        if (styles == null) {
+            styles = new Typeface[4];
+            sFamilies.put(family, styles);
+        }
+        int index = style & Typeface.BOLD_ITALIC;
+        Typeface typeface = styles[index];
+        if (typeface == null) {
+            typeface = Typeface.create(family, index);
+            styles[index] = typeface;
+            sNames.put(typeface, family + "#" + index);
+        }
+        return typeface;
+    }
+
+    /**
+     * Same as {@link Typeface#createFromAsset(AssetManager, String)}, loaded once per path
+     * as long as the font stays in the cache.
+     */
+    public static synchronized Typeface fromAsset(AssetManager assets, String path) {
+        Typeface typeface = sAssets.get(path);
+        if (typeface == null) {
+            typeface = Typeface.createFromAsset(assets, path);
+            sAssets.put(path, typeface);
+            sNames.put(typeface, "asset:" + path);
+        }
+        return typeface;
+    }
+
+    /**
+     * @return a name identifying {@code typeface} across processes if it was resolved by
+     * this registry, null otherwise
+     */
+    public static synchronized String nameOf(Typeface typeface) {
+        return sNames.get(typeface);
+    }
+}
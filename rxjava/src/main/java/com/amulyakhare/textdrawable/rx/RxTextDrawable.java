@@ -0,0 +1,70 @@
+package com.amulyakhare.textdrawable.rx;
+
+import android.graphics.Bitmap;
+
+import com.amulyakhare.textdrawable.TextDrawable;
+import com.amulyakhare.textdrawable.util.ColorGenerator;
+
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.SingleOnSubscribe;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * RxJava wrappers rasterizing tiles off the main thread. Disposing the subscription, e.g.
+ * when a row is recycled, skips the rendering if it has not started yet and drops the
+ * bitmap if it has.
+ *
+ * <pre>
+ * holder.subscription.dispose();
+ * holder.subscription = RxTextDrawable.render(style, name, ColorGenerator.MATERIAL, size, size)
+ *         .observeOn(AndroidSchedulers.mainThread())
+ *         .subscribe(bitmap -> holder.imageView.setImageBitmap(bitmap));
+ * </pre>
+ */
+public final class RxTextDrawable {
+
+    private RxTextDrawable() {
+    }
+
+    /**
+     * Renders {@code text} in {@code color} at {@code width} x {@code height} px on the
+     * computation scheduler.
+     */
+    public static Single<Bitmap> render(final TextDrawable.Style style, final String text, final int color,
+                                        final int width, final int height) {
+        return Single.create(new SingleOnSubscribe<Bitmap>() {
+            @Override
+            public void subscribe(SingleEmitter<Bitmap> emitter) {
+                if (!emitter.isDisposed()) {
+                    deliver(emitter, style.render(text, color, width, height));
+                }
+            }
+        }).subscribeOn(Schedulers.computation());
+    }
+
+    /**
+     * Same as {@link #render(TextDrawable.Style, String, int, int, int)} with the color
+     * {@code palette} picks for {@code text}.
+     */
+    public static Single<Bitmap> render(final TextDrawable.Style style, final String text,
+                                        final ColorGenerator palette, final int width, final int height) {
+        return Single.create(new SingleOnSubscribe<Bitmap>() {
+            @Override
+            public void subscribe(SingleEmitter<Bitmap> emitter) {
+                if (!emitter.isDisposed()) {
+                    deliver(emitter, style.render(text, palette, palette.getColorIndex(text), width, height));
+                }
+            }
+        }).subscribeOn(Schedulers.computation());
+    }
+
+    private static void deliver(SingleEmitter<Bitmap> emitter, Bitmap bitmap) {
+        if (emitter.isDisposed()) {
+            // nobody is going to show it
+            bitmap.recycle();
+            return;
+        }
+        emitter.onSuccess(bitmap);
+    }
+}
@@ -15,6 +15,7 @@ import com.amulyakhare.td.R;
 import com.amulyakhare.td.sample.sample.DrawableProvider;
 import com.amulyakhare.textdrawable.TextDrawable;
 import com.amulyakhare.textdrawable.util.ColorGenerator;
+import com.amulyakhare.textdrawable.util.InitialsExtractor;
 
 import java.util.Arrays;
 import java.util.List;
@@ -22,6 +23,8 @@ import java.util.List;
 public class ListActivity extends ActionBarActivity {
 
     private static final int HIGHLIGHT_COLOR = 0x999be6ff;
+    private static final int CHECKED_COLOR = 0xff616161;
+    private static final long FLIP_DURATION = 300;
 
     // list of data items
     private List<ListData> mDataList = Arrays.asList(
@@ -47,6 +50,9 @@ public class ListActivity extends ActionBarActivity {
     private ColorGenerator mColorGenerator = ColorGenerator.MATERIAL;
     private TextDrawable.IBuilder mDrawableBuilder;
 
+    // initials are extracted once per name and shared between binds
+    private InitialsExtractor mInitials = new InitialsExtractor(1, 64);
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -128,14 +134,14 @@ public class ListActivity extends ActionBarActivity {
             ListData item = getItem(position);
 
             // provide support for selected state
-            updateCheckedState(holder, item);
+            updateCheckedState(holder, item, false);
             holder.imageView.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
                     // when the image is clicked, update the selected state
                     ListData data = getItem(position);
                     data.setChecked(!data.isChecked);
-                    updateCheckedState(holder, data);
+                    updateCheckedState(holder, data, true);
                 }
             });
             holder.textView.setText(item.data);
@@ -143,17 +149,25 @@ public class ListActivity extends ActionBarActivity {
             return convertView;
         }
 
-        private void updateCheckedState(ViewHolder holder, ListData item) {
+        private void updateCheckedState(ViewHolder holder, ListData item, boolean animate) {
+            String text = mInitials.get(item.data);
+            int color = mColorGenerator.getColor(item.data);
+
+            // reuse the drawable of the recycled row instead of building a new one
+            if (holder.drawable == null) {
+                holder.drawable = mDrawableBuilder.build(text, color);
+                holder.imageView.setImageDrawable(holder.drawable);
+            }
+
+            // flip the tile when clicked, bind a recycled row without animation
+            long duration = animate ? FLIP_DURATION : 0;
             if (item.isChecked) {
-                holder.imageView.setImageDrawable(mDrawableBuilder.build(" ", 0xff616161));
+                holder.drawable.flipToCheckMark(CHECKED_COLOR, duration);
                 holder.view.setBackgroundColor(HIGHLIGHT_COLOR);
-                holder.checkIcon.setVisibility(View.VISIBLE);
             }
             else {
-                TextDrawable drawable = mDrawableBuilder.build(String.valueOf(item.data.charAt(0)), mColorGenerator.getColor(item.data));
-                holder.imageView.setImageDrawable(drawable);
+                holder.drawable.flipTo(text, color, duration);
                 holder.view.setBackgroundColor(Color.TRANSPARENT);
-                holder.checkIcon.setVisibility(View.GONE);
             }
         }
     }
@@ -166,13 +180,12 @@ public class ListActivity extends ActionBarActivity {
 
         private TextView textView;
 
-        private ImageView checkIcon;
+        private TextDrawable drawable;
 
         private ViewHolder(View view) {
             this.view = view;
             imageView = (ImageView) view.findViewById(R.id.imageView);
             textView = (TextView) view.findViewById(R.id.textView);
-            checkIcon = (ImageView) view.findViewById(R.id.check_icon);
         }
     }
 
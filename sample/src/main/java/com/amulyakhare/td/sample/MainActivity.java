@@ -1,7 +1,7 @@
 package com.amulyakhare.td.sample;
 
 import android.content.Intent;
-import android.graphics.drawable.AnimationDrawable;
+import android.graphics.drawable.Animatable;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.support.v7.app.ActionBarActivity;
@@ -91,12 +91,12 @@ public class MainActivity extends ActionBarActivity implements AdapterView.OnIte
             }
 
             // fix for animation not playing for some below 4.4 devices
-            if (drawable instanceof AnimationDrawable) {
+            if (drawable instanceof Animatable) {
                 holder.imageView.post(new Runnable() {
                     @Override
                     public void run() {
-                        ((AnimationDrawable) drawable).stop();
-                        ((AnimationDrawable) drawable).start();
+                        ((Animatable) drawable).stop();
+                        ((Animatable) drawable).start();
                     }
                 });
             }
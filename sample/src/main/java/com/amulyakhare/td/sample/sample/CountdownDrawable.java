@@ -0,0 +1,62 @@
+package com.amulyakhare.td.sample.sample;
+
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.LayerDrawable;
+import android.os.SystemClock;
+
+import com.amulyakhare.textdrawable.TextDrawable;
+import com.amulyakhare.textdrawable.util.ColorGenerator;
+
+/**
+ * Counts down from 10 on a single {@link TextDrawable}, cross-fading each number into the
+ * next one instead of swapping whole frames.
+ */
+public class CountdownDrawable extends LayerDrawable implements Animatable, Runnable {
+
+    private static final int START = 10;
+    private static final long FRAME_DURATION = 1200;
+    private static final long FADE_DURATION = 300;
+
+    private final TextDrawable mDrawable;
+    private final ColorGenerator mGenerator;
+    private int mCount = START;
+    private boolean mRunning;
+
+    public CountdownDrawable(TextDrawable.IBuilder builder, ColorGenerator generator) {
+        this(builder.build(String.valueOf(START), generator.getRandomColor()), generator);
+    }
+
+    private CountdownDrawable(TextDrawable drawable, ColorGenerator generator) {
+        super(new Drawable[]{drawable});
+        mDrawable = drawable;
+        mGenerator = generator;
+    }
+
+    @Override
+    public void start() {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        scheduleSelf(this, SystemClock.uptimeMillis() + FRAME_DURATION);
+    }
+
+    @Override
+    public void stop() {
+        mRunning = false;
+        unscheduleSelf(this);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    @Override
+    public void run() {
+        mCount = mCount == 1 ? START : mCount - 1;
+        mDrawable.crossFadeTo(String.valueOf(mCount), mGenerator.getRandomColor(), FADE_DURATION);
+        scheduleSelf(this, SystemClock.uptimeMillis() + FRAME_DURATION);
+    }
+}
@@ -4,10 +4,7 @@ import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Color;
 import android.graphics.Typeface;
-import android.graphics.drawable.AnimationDrawable;
 import android.graphics.drawable.Drawable;
-import android.graphics.drawable.InsetDrawable;
-import android.graphics.drawable.LayerDrawable;
 import android.util.TypedValue;
 
 import com.amulyakhare.textdrawable.TextDrawable;
@@ -82,7 +79,7 @@ public class DrawableProvider {
         String text = "AK";
         return TextDrawable.builder()
                 .beginConfig()
-                    .fontSize(toPx(20))
+                    .fitText()
                     .toUpperCase()
                 .endConfig()
                 .buildRect(text, mGenerator.getColor(text));
@@ -101,42 +98,22 @@ public class DrawableProvider {
     }
 
     public Drawable getRectWithCustomSize() {
-        String leftText = "I";
-        String rightText = "J";
+        String[] texts = {"I", "J"};
 
-        TextDrawable.IBuilder builder = TextDrawable.builder()
+        TextDrawable.Style style = TextDrawable.builder()
                 .beginConfig()
-                    .width(toPx(29))
                     .withBorder(toPx(2))
                 .endConfig()
-                .rect();
-
-        TextDrawable left = builder
-                .build(leftText, mGenerator.getColor(leftText));
+                .rect()
+                .style();
 
-        TextDrawable right = builder
-                .build(rightText, mGenerator.getColor(rightText));
-
-        Drawable[] layerList = {
-                new InsetDrawable(left, 0, 0, toPx(31), 0),
-                new InsetDrawable(right, toPx(31), 0, 0, 0)
-        };
-        return new LayerDrawable(layerList);
+        return style.buildGroup(texts, mGenerator);
     }
 
     public Drawable getRectWithAnimation() {
         TextDrawable.IBuilder builder = TextDrawable.builder()
                 .rect();
-
-        AnimationDrawable animationDrawable = new AnimationDrawable();
-        for (int i = 10; i > 0; i--) {
-            TextDrawable frame = builder.build(String.valueOf(i), mGenerator.getRandomColor());
-            animationDrawable.addFrame(frame, 1200);
-        }
-        animationDrawable.setOneShot(false);
-        animationDrawable.start();
-
-        return animationDrawable;
+        return new CountdownDrawable(builder, mGenerator);
     }
 
     public int toPx(int dp) {